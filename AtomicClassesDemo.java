@@ -1,4 +1,8 @@
 import java.util.concurrent.atomic.*;
+import java.util.*;
+import java.util.function.*;
+import java.io.*;
+import java.nio.file.*;
 import java.util.concurrent.*;
 
 public class AtomicClassesDemo {
@@ -158,7 +162,663 @@ public class AtomicClassesDemo {
         }
     }
     
-    public static void main(String[] args) throws InterruptedException {
+    // ============================================
+    // 6. Striped Counter (LongAdder-style)
+    // ============================================
+    static class StripedCounter {
+        private static final int MAX_CELLS = nextPowerOfTwo(Runtime.getRuntime().availableProcessors());
+        private static final long APPROX_REFRESH_NANOS = 1_000_000; // 1ms
+        private static final int MAX_SWEEPS = 8;
+        
+        // Per-thread probe, rehashed whenever its cell turns out to be contended
+        private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> {
+            int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+            return new int[] { h == 0 ? 1 : h };
+        });
+        
+        // The counter lives in the cell itself, padded on both sides. Padding goes in
+        // super/subclasses because the JVM may reorder fields within one class.
+        static class CellLhs { long p0, p1, p2, p3, p4, p5, p6, p7; }
+        static class CellValue extends CellLhs { volatile long value; }
+        static final class Cell extends CellValue {
+            private static final AtomicLongFieldUpdater<CellValue> VALUE =
+                AtomicLongFieldUpdater.newUpdater(CellValue.class, "value");
+            long q0, q1, q2, q3, q4, q5, q6, q7;
+            
+            long get() { return value; }
+            boolean compareAndSet(long expect, long update) { return VALUE.compareAndSet(this, expect, update); }
+        }
+        
+        private final AtomicLong base = new AtomicLong(0);
+        private final AtomicBoolean resizing = new AtomicBoolean(false);
+        private volatile Cell[] cells;
+        private volatile long approxValue;
+        private volatile long approxStamp = System.nanoTime() - APPROX_REFRESH_NANOS - 1; // First read refreshes
+        
+        public void increment() {
+            add(1);
+        }
+        
+        public void decrement() {
+            add(-1);
+        }
+        
+        public void add(long value) {
+            Cell[] cs = cells;
+            if (cs == null) {
+                // Uncontended: behave like a plain AtomicLong
+                long b = base.get();
+                if (base.compareAndSet(b, b + value)) return;
+                cs = grow(null);
+            }
+            int[] probe = PROBE.get();
+            while (true) {
+                Cell cell = cs[probe[0] & (cs.length - 1)];
+                long v = cell.get();
+                if (cell.compareAndSet(v, v + value)) return;
+                // Collision with another thread: move to another cell, grow if allowed
+                probe[0] = rehash(probe[0]);
+                cs = grow(cs);
+            }
+        }
+        
+        // Same contract as AtomicCounter.get()
+        public int get() {
+            return (int) sum();
+        }
+        
+        // Sum of base + all cells; concurrent updates may or may not be included
+        public long sum() {
+            long total = base.get();
+            Cell[] cs = cells;
+            if (cs != null) {
+                for (Cell c : cs) total += c.get();
+            }
+            return total;
+        }
+        
+        // Double-collect: sweeps until two consecutive sweeps see identical cells.
+        // Once writes stop this is the exact total. Under sustained writes it gives
+        // up after MAX_SWEEPS and returns the last sweep, which is no better than
+        // sum(). Matching sweeps don't prove a single instant if decrements can
+        // undo increments in between (ABA).
+        public long sumExact() {
+            long[] previous = collect(null);
+            long[] current = null;
+            for (int sweep = 1; sweep < MAX_SWEEPS; sweep++) {
+                current = collect(current);
+                boolean stable = Arrays.equals(previous, current);
+                long[] latest = current;
+                current = previous; // Reused by the next sweep
+                previous = latest;
+                if (stable) break;
+                Thread.onSpinWait();
+            }
+            long total = 0;
+            for (long v : previous) total += v;
+            return total;
+        }
+        
+        // Cheap read for dashboards: re-sums at most once per millisecond
+        public long getApproximate() {
+            long now = System.nanoTime();
+            if (now - approxStamp > APPROX_REFRESH_NANOS) {
+                approxValue = sum();
+                approxStamp = now;
+            }
+            return approxValue;
+        }
+        
+        public int getCellCount() {
+            Cell[] cs = cells;
+            return cs == null ? 0 : cs.length;
+        }
+        
+        // Reuses into when it still fits the cell count
+        private long[] collect(long[] into) {
+            Cell[] cs = cells;
+            int length = cs == null ? 1 : cs.length + 1;
+            long[] snapshot = into != null && into.length == length ? into : new long[length];
+            snapshot[0] = base.get();
+            for (int i = 1; i < snapshot.length; i++) {
+                snapshot[i] = cs[i - 1].get();
+            }
+            return snapshot;
+        }
+        
+        // Existing cells are carried over, so no update is ever lost by a resize
+        private Cell[] grow(Cell[] current) {
+            if (current != null && current.length >= MAX_CELLS) return current;
+            if (!resizing.compareAndSet(false, true)) return current == null ? awaitCells() : current;
+            try {
+                if (cells != current) return cells;
+                int size = current == null ? Math.min(2, MAX_CELLS) : current.length * 2;
+                Cell[] grown = current == null ? new Cell[size] : Arrays.copyOf(current, size);
+                for (int i = current == null ? 0 : current.length; i < size; i++) {
+                    grown[i] = new Cell();
+                }
+                cells = grown;
+                return grown;
+            } finally {
+                resizing.set(false);
+            }
+        }
+        
+        private Cell[] awaitCells() {
+            Cell[] cs;
+            while ((cs = cells) == null) Thread.onSpinWait();
+            return cs;
+        }
+        
+        private static int rehash(int h) {
+            h ^= h << 13;
+            h ^= h >>> 17;
+            h ^= h << 5;
+            return h;
+        }
+        
+        private static int nextPowerOfTwo(int n) {
+            return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+        }
+    }
+    
+    // ============================================
+    // 7. Latency Histogram (log-linear buckets)
+    // ============================================
+    static class LatencyHistogram {
+        private final int significantDigits;
+        private final long highestTrackableValue;
+        private final int subBucketBits;   // Linear slots per power of two = 2^subBucketBits
+        private final AtomicLongArray counts;
+        private final AtomicLong totalCount = new AtomicLong(0);
+        private final AtomicLong maxValue = new AtomicLong(0);
+        
+        // significantDigits = 2 keeps every bucket within 1% of the values it holds
+        public LatencyHistogram(int significantDigits, long highestTrackableValue) {
+            if (highestTrackableValue < 2) {
+                throw new IllegalArgumentException("highestTrackableValue must be >= 2: " + highestTrackableValue);
+            }
+            this.significantDigits = significantDigits;
+            this.highestTrackableValue = highestTrackableValue;
+            this.subBucketBits = subBucketBitsFor(significantDigits);
+            this.counts = new AtomicLongArray(indexOf(highestTrackableValue) + 1);
+        }
+        
+        // Lock-free: one getAndIncrement on the bucket, CAS on max only when it grows
+        public void recordValue(long value) {
+            if (value < 0) throw new IllegalArgumentException("Negative value: " + value);
+            long clamped = Math.min(value, highestTrackableValue);
+            counts.incrementAndGet(indexOf(clamped));
+            totalCount.incrementAndGet();
+            long max = maxValue.get();
+            while (clamped > max && !maxValue.compareAndSet(max, clamped)) {
+                max = maxValue.get();
+            }
+        }
+        
+        // Walks the buckets without locking, so a query never holds up recordValue()
+        public long getValueAtPercentile(double percentile) {
+            long total = totalCount.get();
+            if (total == 0) return 0;
+            long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return Math.min(highestValueInBucket(i), maxValue.get());
+                }
+            }
+            return maxValue.get();
+        }
+        
+        public long getP50() { return getValueAtPercentile(50.0); }
+        public long getP90() { return getValueAtPercentile(90.0); }
+        public long getP99() { return getValueAtPercentile(99.0); }
+        public long getP999() { return getValueAtPercentile(99.9); }
+        public long getMax() { return maxValue.get(); }
+        public long getTotalCount() { return totalCount.get(); }
+        
+        public void reset() {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+            totalCount.set(0);
+            maxValue.set(0);
+        }
+        
+        boolean isCompatibleWith(LatencyHistogram other) {
+            return other.significantDigits == significantDigits
+                && other.highestTrackableValue == highestTrackableValue;
+        }
+        
+        private int indexOf(long value) {
+            return bucketIndex(value, subBucketBits);
+        }
+        
+        private long highestValueInBucket(int index) {
+            return bucketUpperBound(index, subBucketBits);
+        }
+        
+        static int subBucketBitsFor(int significantDigits) {
+            if (significantDigits < 1 || significantDigits > 5) {
+                throw new IllegalArgumentException("significantDigits must be 1..5: " + significantDigits);
+            }
+            long largestExact = 2 * (long) Math.pow(10, significantDigits);
+            return 64 - Long.numberOfLeadingZeros(largestExact - 1);
+        }
+        
+        // Values below 2^subBucketBits map 1:1; above that each power of two
+        // is split into 2^(subBucketBits-1) equal-width slots
+        static int bucketIndex(long value, int subBucketBits) {
+            int msb = 63 - Long.numberOfLeadingZeros(value | 1);
+            if (msb < subBucketBits) return (int) value;
+            int half = 1 << (subBucketBits - 1);
+            int shift = msb - subBucketBits + 1;
+            long mantissa = value >>> shift;
+            return (1 << subBucketBits) + (shift - 1) * half + (int) (mantissa - half);
+        }
+        
+        static long bucketUpperBound(int index, int subBucketBits) {
+            int linear = 1 << subBucketBits;
+            if (index < linear) return index;
+            int half = 1 << (subBucketBits - 1);
+            int shift = (index - linear) / half + 1;
+            long mantissa = half + (index - linear) % half;
+            long upper = ((mantissa + 1) << shift) - 1;
+            return upper < 0 ? Long.MAX_VALUE : upper;
+        }
+        
+        public void printPercentiles(String label) {
+            System.out.println(String.format("  %s count=%d p50=%dµs p90=%dµs p99=%dµs p99.9=%dµs max=%dµs",
+                label, getTotalCount(), getP50() / 1000, getP90() / 1000, getP99() / 1000,
+                getP999() / 1000, getMax() / 1000));
+        }
+    }
+    
+    // Drop-in for Statistics.recordRequest() that keeps the tail instead of an average.
+    // Writers enter/exit an epoch (wait-free getAndIncrement); the reporter swaps in an
+    // empty histogram and waits only for writers already inside the old one.
+    static class LatencyRecorder {
+        private final int significantDigits;
+        private final long highestTrackableValue;
+        private volatile LatencyHistogram active;
+        
+        private final AtomicLong startEpoch = new AtomicLong(0);
+        private final AtomicLong evenEndEpoch = new AtomicLong(0);
+        private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+        
+        public LatencyRecorder(int significantDigits, long highestTrackableValue) {
+            this.significantDigits = significantDigits;
+            this.highestTrackableValue = highestTrackableValue;
+            this.active = new LatencyHistogram(significantDigits, highestTrackableValue);
+        }
+        
+        public void recordRequest(long nanos) {
+            long epoch = startEpoch.getAndIncrement();
+            try {
+                active.recordValue(nanos);
+            } finally {
+                if (epoch < 0) {
+                    oddEndEpoch.getAndIncrement();
+                } else {
+                    evenEndEpoch.getAndIncrement();
+                }
+            }
+        }
+        
+        // Returns everything recorded since the previous call. Pass the histogram
+        // returned last time back in and no allocation happens per interval.
+        public synchronized LatencyHistogram getIntervalHistogram(LatencyHistogram recycle) {
+            LatencyHistogram next;
+            if (recycle == null) {
+                next = new LatencyHistogram(significantDigits, highestTrackableValue);
+            } else if (!recycle.isCompatibleWith(active)) {
+                throw new IllegalArgumentException("Recycled histogram has a different configuration");
+            } else {
+                next = recycle;
+                next.reset();
+            }
+            LatencyHistogram sampled = active;
+            active = next;
+            flipPhase();
+            return sampled;
+        }
+        
+        private void flipPhase() {
+            boolean nextPhaseIsEven = startEpoch.get() < 0;
+            long initialStart = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+            // Reset the end counter of the phase we are switching to
+            (nextPhaseIsEven ? evenEndEpoch : oddEndEpoch).set(initialStart);
+            long startAtFlip = startEpoch.getAndSet(initialStart);
+            AtomicLong endOfOldPhase = nextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+            // Every writer that entered the old phase has now left it
+            while (endOfOldPhase.get() != startAtFlip) {
+                Thread.yield();
+            }
+        }
+    }
+    
+    // ============================================
+    // 8. Auto-Ranging Histogram (per-thread shards)
+    // ============================================
+    static class AutoRangingHistogram {
+        private static final int INITIAL_BUCKETS = 256;
+        
+        private final int subBucketBits;
+        // Every thread that ever recorded owns one shard; readers merge them all
+        private final Queue<Shard> shards = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<Shard> localShard = ThreadLocal.withInitial(this::registerShard);
+        
+        // Single writer (the owning thread), so updates are plain get + lazySet, no CAS
+        private static final class Shard {
+            volatile AtomicLongArray counts = new AtomicLongArray(INITIAL_BUCKETS);
+            final AtomicLong total = new AtomicLong(0);
+            final AtomicLong max = new AtomicLong(0);
+            
+            void add(int index, long n, long value) {
+                AtomicLongArray c = counts;
+                if (index >= c.length()) {
+                    c = grow(c, index);
+                }
+                c.lazySet(index, c.get(index) + n);
+                total.lazySet(total.get() + n);
+                if (value > max.get()) max.lazySet(value);
+            }
+            
+            // Copy into a larger array and publish it; readers holding the old
+            // array just see a slightly older view, no count is ever dropped
+            private AtomicLongArray grow(AtomicLongArray c, int index) {
+                int size = c.length();
+                while (size <= index) size *= 2;
+                AtomicLongArray grown = new AtomicLongArray(size);
+                for (int i = 0; i < c.length(); i++) {
+                    grown.lazySet(i, c.get(i));
+                }
+                counts = grown;
+                return grown;
+            }
+        }
+        
+        public AutoRangingHistogram(int significantDigits) {
+            // Same precision rules and bucket layout as LatencyHistogram
+            this.subBucketBits = LatencyHistogram.subBucketBitsFor(significantDigits);
+        }
+        
+        public void recordValue(long value) {
+            recordValue(value, 1);
+        }
+        
+        public void recordValue(long value, long count) {
+            if (value < 0) throw new IllegalArgumentException("Negative value: " + value);
+            localShard.get().add(LatencyHistogram.bucketIndex(value, subBucketBits), count, value);
+        }
+        
+        // Fold another worker's histogram into this one (recorded on the caller's shard)
+        public void merge(AutoRangingHistogram other) {
+            if (other.subBucketBits != subBucketBits) {
+                throw new IllegalArgumentException("Cannot merge histograms with different precision");
+            }
+            long[] theirs = other.snapshot();
+            Shard mine = localShard.get();
+            for (int i = 0; i < theirs.length; i++) {
+                if (theirs[i] != 0) {
+                    long value = Math.min(LatencyHistogram.bucketUpperBound(i, subBucketBits), other.getMax());
+                    mine.add(i, theirs[i], value);
+                }
+            }
+        }
+        
+        // Merged per-bucket counts across all shards
+        public long[] snapshot() {
+            int length = 0;
+            for (Shard shard : shards) {
+                length = Math.max(length, shard.counts.length());
+            }
+            long[] merged = new long[length];
+            for (Shard shard : shards) {
+                AtomicLongArray c = shard.counts;
+                for (int i = 0; i < c.length(); i++) {
+                    merged[i] += c.get(i);
+                }
+            }
+            return merged;
+        }
+        
+        public long getTotalCount() {
+            long total = 0;
+            for (Shard shard : shards) total += shard.total.get();
+            return total;
+        }
+        
+        public long getMax() {
+            long max = 0;
+            for (Shard shard : shards) max = Math.max(max, shard.max.get());
+            return max;
+        }
+        
+        public long getValueAtPercentile(double percentile) {
+            long[] merged = snapshot();
+            long total = 0;
+            for (long c : merged) total += c;
+            if (total == 0) return 0;
+            long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < merged.length; i++) {
+                seen += merged[i];
+                if (seen >= target) {
+                    return Math.min(LatencyHistogram.bucketUpperBound(i, subBucketBits), getMax());
+                }
+            }
+            return getMax();
+        }
+        
+        public int getBucketCount() {
+            return snapshot().length;
+        }
+        
+        private Shard registerShard() {
+            Shard shard = new Shard();
+            shards.add(shard);
+            return shard;
+        }
+    }
+    
+    // ============================================
+    // 9. Copy-on-Write Configuration Registry
+    // ============================================
+    // Key resolved once at startup; its index makes every hot-path lookup an array read
+    static final class ConfigKey<T> {
+        final String name;
+        final int index;
+        final Class<T> type;
+        final Function<String, T> parser;
+        final T defaultValue;
+        
+        private ConfigKey(String name, int index, Class<T> type, Function<String, T> parser, T defaultValue) {
+            this.name = name;
+            this.index = index;
+            this.type = type;
+            this.parser = parser;
+            this.defaultValue = defaultValue;
+        }
+        
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+    
+    // Immutable: readers may hold on to a snapshot for a whole request
+    static final class ConfigSnapshot {
+        final long version;
+        private final Object[] values;
+        
+        private ConfigSnapshot(long version, Object[] values) {
+            this.version = version;
+            this.values = values;
+        }
+        
+        public <T> T get(ConfigKey<T> key) {
+            // Keys defined after this snapshot was published fall back to their default
+            Object value = key.index < values.length ? values[key.index] : null;
+            return value == null ? key.defaultValue : key.type.cast(value);
+        }
+        
+        public long getVersion() {
+            return version;
+        }
+    }
+    
+    // A batch of changes that is published as a single new version
+    static final class ConfigDiff {
+        private final Map<ConfigKey<?>, Object> changes = new LinkedHashMap<>();
+        
+        public <T> ConfigDiff set(ConfigKey<T> key, T value) {
+            changes.put(key, key.type.cast(value));
+            return this;
+        }
+        
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+    }
+    
+    static class ConfigRegistry {
+        private final Map<String, ConfigKey<?>> keysByName = new ConcurrentHashMap<>();
+        private final AtomicInteger nextIndex = new AtomicInteger(0);
+        private final AtomicReference<ConfigSnapshot> current =
+            new AtomicReference<>(new ConfigSnapshot(0, new Object[0]));
+        private final List<Consumer<ConfigSnapshot>> listeners = new CopyOnWriteArrayList<>();
+        // Published but not yet delivered, by version; drained in order under notifyLock
+        private final Map<Long, ConfigSnapshot> undelivered = new ConcurrentHashMap<>();
+        private final Object notifyLock = new Object();
+        private long lastDelivered;  // Guarded by notifyLock
+        private boolean delivering;  // Guarded by notifyLock; set while listeners run
+        
+        public <T> ConfigKey<T> define(String name, Class<T> type, Function<String, T> parser, T defaultValue) {
+            ConfigKey<?> key = keysByName.computeIfAbsent(name,
+                n -> new ConfigKey<>(n, nextIndex.getAndIncrement(), type, parser, defaultValue));
+            if (key.type != type) {
+                throw new IllegalArgumentException("Key " + name + " already defined as " + key.type.getSimpleName());
+            }
+            @SuppressWarnings("unchecked")
+            ConfigKey<T> typed = (ConfigKey<T>) key;
+            return typed;
+        }
+        
+        // Zero locking: a single volatile read
+        public ConfigSnapshot snapshot() {
+            return current.get();
+        }
+        
+        public <T> T get(ConfigKey<T> key) {
+            return current.get().get(key);
+        }
+        
+        public void addListener(Consumer<ConfigSnapshot> listener) {
+            listeners.add(listener);
+        }
+        
+        // Copy, apply, CAS; on a lost race re-apply the diff to the newer snapshot.
+        // Listeners see every version exactly once, in increasing order.
+        public ConfigSnapshot apply(ConfigDiff diff) {
+            if (diff.isEmpty()) return current.get();
+            while (true) {
+                ConfigSnapshot base = current.get();
+                Object[] values = Arrays.copyOf(base.values, Math.max(base.values.length, nextIndex.get()));
+                for (Map.Entry<ConfigKey<?>, Object> change : diff.changes.entrySet()) {
+                    values[change.getKey().index] = change.getValue();
+                }
+                ConfigSnapshot next = new ConfigSnapshot(base.version + 1, values);
+                if (current.compareAndSet(base, next)) {
+                    undelivered.put(next.version, next);
+                    notifyListeners();
+                    return next;
+                }
+            }
+        }
+        
+        // Versions are consecutive, so whichever publisher holds the lock delivers
+        // every version that follows lastDelivered. One whose predecessor hasn't
+        // been queued yet leaves it for that predecessor's publisher to deliver.
+        // A listener that applies a diff itself gets it after the current round.
+        private void notifyListeners() {
+            synchronized (notifyLock) {
+                if (delivering) return;
+                delivering = true;
+                try {
+                    ConfigSnapshot next;
+                    while ((next = undelivered.remove(lastDelivered + 1)) != null) {
+                        lastDelivered = next.version;
+                        for (Consumer<ConfigSnapshot> listener : listeners) {
+                            try {
+                                listener.accept(next);
+                            } catch (RuntimeException e) {
+                                System.out.println("  [Config] Listener failed on version " + next.version + ": " + e);
+                            }
+                        }
+                    }
+                } finally {
+                    delivering = false;
+                }
+            }
+        }
+        
+        // Publishes a new version only if the file actually changes a known key.
+        // A value that fails to parse rejects the whole file and keeps the old config.
+        public ConfigSnapshot reloadFrom(Path file) throws IOException {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            ConfigSnapshot base = current.get();
+            ConfigDiff diff = new ConfigDiff();
+            for (String name : properties.stringPropertyNames()) {
+                ConfigKey<?> key = keysByName.get(name);
+                if (key == null) {
+                    System.out.println("  [Config] Ignoring unknown key: " + name);
+                    continue;
+                }
+                Object parsed;
+                try {
+                    parsed = key.parser.apply(properties.getProperty(name).trim());
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Bad value for " + name + ": " + properties.getProperty(name), e);
+                }
+                if (!parsed.equals(base.get(key))) {
+                    diff.changes.put(key, parsed);
+                }
+            }
+            return apply(diff);
+        }
+        
+        // Polls the file's modification time/size; no thread per key, one per file
+        public ScheduledExecutorService startHotReload(Path file, long intervalMillis) {
+            ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Config-Reload");
+                t.setDaemon(true);
+                return t;
+            });
+            long[] lastSeen = { -1, -1 };
+            poller.scheduleWithFixedDelay(() -> {
+                try {
+                    long modified = Files.getLastModifiedTime(file).toMillis();
+                    long size = Files.size(file);
+                    if (modified != lastSeen[0] || size != lastSeen[1]) {
+                        lastSeen[0] = modified;
+                        lastSeen[1] = size;
+                        reloadFrom(file);
+                    }
+                } catch (IOException | RuntimeException e) { // Anything escaping would cancel the schedule
+                    System.out.println("  [Config] Reload failed, keeping version "
+                        + current.get().version + ": " + e.getMessage());
+                }
+            }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+            return poller;
+        }
+    }
+    
+    public static void main(String[] args) throws InterruptedException, IOException {
         System.out.println("=== Atomic Classes Demo ===\n");
         
         // ============================================
@@ -261,23 +921,51 @@ public class AtomicClassesDemo {
         // ============================================
         // Demo 6: AtomicIntegerArray for Histogram
         // ============================================
-        System.out.println("--- 6. AtomicIntegerArray for Histogram ---");
+        System.out.println("--- 6. AtomicIntegerArray vs Auto-Ranging Histogram ---");
+        int histogramThreads = 10;
+        int histogramIterations = 200_000;
+        
+        // Fixed 5 buckets: every caller must work out the bucket index itself
         Histogram histogram = new Histogram();
+        long fixedTime = timeThreads(histogramThreads, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int j = 0; j < histogramIterations; j++) {
+                long value = random.nextLong(1_000_000);
+                histogram.increment((int) (value * 5 / 1_000_000));
+            }
+        });
+        histogram.print();
         
-        Thread[] threads3 = new Thread[10];
-        for (int i = 0; i < 10; i++) {
-            threads3[i] = new Thread(() -> {
-                for (int j = 0; j < 100; j++) {
-                    int bucket = (int)(Math.random() * 5);
-                    histogram.increment(bucket);
-                }
-            });
-        }
+        // Auto-ranging: arbitrary values, range grows as large values show up
+        AutoRangingHistogram autoHistogram = new AutoRangingHistogram(2);
+        long autoTime = timeThreads(histogramThreads, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int j = 0; j < histogramIterations; j++) {
+                // Mostly small values, occasionally up to 2^40
+                long value = random.nextInt(1000) == 0
+                    ? random.nextLong(1L << 40)
+                    : random.nextLong(1_000_000);
+                autoHistogram.recordValue(value);
+            }
+        });
         
-        for (Thread t : threads3) t.start();
-        for (Thread t : threads3) t.join();
+        long histogramOps = (long) histogramThreads * histogramIterations;
+        System.out.println("Fixed 5-bucket histogram: " + histogramOps * 1_000_000 / Math.max(1, fixedTime) + " ops/ms");
+        System.out.println("Auto-ranging histogram:   " + histogramOps * 1_000_000 / Math.max(1, autoTime) + " ops/ms"
+            + " (count=" + autoHistogram.getTotalCount() + ", buckets=" + autoHistogram.getBucketCount()
+            + ", p50=" + autoHistogram.getValueAtPercentile(50) + ", max=" + autoHistogram.getMax() + ")");
         
-        histogram.print();
+        // Merge per-worker histograms into one report
+        AutoRangingHistogram merged = new AutoRangingHistogram(2);
+        for (int w = 0; w < 4; w++) {
+            AutoRangingHistogram worker = new AutoRangingHistogram(2);
+            for (int j = 0; j < 1000; j++) {
+                worker.recordValue((w + 1) * 1000L + j);
+            }
+            merged.merge(worker);
+        }
+        System.out.println("Merged 4 workers: count=" + merged.getTotalCount()
+            + ", p50=" + merged.getValueAtPercentile(50) + ", max=" + merged.getMax());
         System.out.println();
         
         // ============================================
@@ -285,46 +973,126 @@ public class AtomicClassesDemo {
         // ============================================
         System.out.println("--- 7. Performance Test ---");
         
-        // Atomic approach
-        AtomicInteger atomicPerf = new AtomicInteger(0);
-        long startAtomic = System.nanoTime();
+        // Same workload for every counter: each thread increments 100,000 times
+        int perfIterations = 100_000;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
         
-        Thread[] perfThreads1 = new Thread[5];
-        for (int i = 0; i < 5; i++) {
-            perfThreads1[i] = new Thread(() -> {
-                for (int j = 0; j < 100000; j++) {
+        System.out.println(String.format("%-8s %12s %14s %10s", "Threads", "Atomic(ms)", "Synchronized", "Striped"));
+        // 1, 2, 4, ... and always finish with exactly N threads
+        for (int perfThreads = 1; perfThreads <= maxThreads;
+                perfThreads = perfThreads == maxThreads ? maxThreads + 1 : Math.min(perfThreads * 2, maxThreads)) {
+            AtomicInteger atomicPerf = new AtomicInteger(0);
+            long atomicTime = timeThreads(perfThreads, () -> {
+                for (int j = 0; j < perfIterations; j++) {
                     atomicPerf.incrementAndGet();
                 }
             });
+            
+            Object lock = new Object();
+            int[] syncCounter = {0};
+            long syncTime = timeThreads(perfThreads, () -> {
+                for (int j = 0; j < perfIterations; j++) {
+                    synchronized(lock) {
+                        syncCounter[0]++;
+                    }
+                }
+            });
+            
+            StripedCounter stripedPerf = new StripedCounter();
+            long stripedTime = timeThreads(perfThreads, () -> {
+                for (int j = 0; j < perfIterations; j++) {
+                    stripedPerf.increment();
+                }
+            });
+            
+            long expectedTotal = (long) perfThreads * perfIterations;
+            boolean correct = atomicPerf.get() == expectedTotal
+                && syncCounter[0] == expectedTotal
+                && stripedPerf.sumExact() == expectedTotal;
+            System.out.println(String.format("%-8d %12d %14d %10d %s",
+                perfThreads, atomicTime / 1_000_000, syncTime / 1_000_000, stripedTime / 1_000_000,
+                correct ? "✅" : "❌ (count mismatch!)"));
         }
-        for (Thread t : perfThreads1) t.start();
-        for (Thread t : perfThreads1) t.join();
         
-        long atomicTime = System.nanoTime() - startAtomic;
+        // Exact vs approximate reads on the striped counter
+        StripedCounter readCounter = new StripedCounter();
+        readCounter.add(41);
+        readCounter.increment();
+        System.out.println("Striped exact read: " + readCounter.sumExact()
+            + ", approximate read: " + readCounter.getApproximate()
+            + " (may lag by up to 1ms)");
         
-        // Synchronized approach
-        Object lock = new Object();
-        int[] syncCounter = {0};
-        long startSync = System.nanoTime();
+        // ============================================
+        // Demo 8: Latency Histogram (tail latency)
+        // ============================================
+        System.out.println("\n--- 8. Latency Histogram (percentiles, not averages) ---");
+        LatencyRecorder recorder = new LatencyRecorder(2, TimeUnit.SECONDS.toNanos(60));
+        LatencyHistogram cumulative = new LatencyHistogram(2, TimeUnit.SECONDS.toNanos(60));
+        AtomicBoolean recording = new AtomicBoolean(true);
         
-        Thread[] perfThreads2 = new Thread[5];
-        for (int i = 0; i < 5; i++) {
-            perfThreads2[i] = new Thread(() -> {
-                for (int j = 0; j < 100000; j++) {
-                    synchronized(lock) {
-                        syncCounter[0]++;
-                    }
+        Thread[] latencyThreads = new Thread[4];
+        for (int i = 0; i < latencyThreads.length; i++) {
+            latencyThreads[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (recording.get()) {
+                    // Mostly ~1ms, with a 1% tail out to ~50ms
+                    long nanos = random.nextInt(100) == 0
+                        ? 5_000_000 + random.nextLong(45_000_000)
+                        : 500_000 + random.nextLong(1_000_000);
+                    recorder.recordRequest(nanos);
+                    cumulative.recordValue(nanos);
                 }
             });
+            latencyThreads[i].start();
         }
-        for (Thread t : perfThreads2) t.start();
-        for (Thread t : perfThreads2) t.join();
         
-        long syncTime = System.nanoTime() - startSync;
+        // Reporter: export one interval at a time, recycling the previous histogram
+        LatencyHistogram interval = null;
+        for (int second = 1; second <= 3; second++) {
+            Thread.sleep(200);
+            interval = recorder.getIntervalHistogram(interval);
+            interval.printPercentiles("Interval " + second + ":");
+        }
+        recording.set(false);
+        for (Thread t : latencyThreads) t.join();
+        cumulative.printPercentiles("Overall:   ");
+        
+        // ============================================
+        // Demo 9: Copy-on-Write Configuration Registry
+        // ============================================
+        System.out.println("\n--- 9. Configuration Registry (versioned snapshots) ---");
+        ConfigRegistry registry = new ConfigRegistry();
+        ConfigKey<String> versionKey = registry.define("version", String.class, String::valueOf, "v1");
+        ConfigKey<Integer> maxConnectionsKey = registry.define("max.connections", Integer.class, Integer::valueOf, 100);
+        ConfigKey<Boolean> featureKey = registry.define("feature.fastPath", Boolean.class, Boolean::valueOf, false);
+        registry.addListener(snapshot -> System.out.println("  Published version " + snapshot.getVersion()
+            + ": " + snapshot.get(versionKey) + ", max=" + snapshot.get(maxConnectionsKey)
+            + ", fastPath=" + snapshot.get(featureKey)));
+        
+        // Concurrent batched writers: every diff lands as its own version; listeners
+        // see them in order, and may see only the newer one if the two publish together
+        Thread writerA = new Thread(() -> registry.apply(new ConfigDiff().set(versionKey, "v2").set(maxConnectionsKey, 200)));
+        Thread writerB = new Thread(() -> registry.apply(new ConfigDiff().set(featureKey, true)));
+        writerA.start(); writerB.start();
+        writerA.join(); writerB.join();
         
-        System.out.println("Atomic approach: " + atomicTime / 1_000_000 + "ms");
-        System.out.println("Synchronized approach: " + syncTime / 1_000_000 + "ms");
-        System.out.println("Atomic is " + String.format("%.2f", (double)syncTime / atomicTime) + "x faster!");
+        // Hot reload from a local properties file
+        Path configFile = Files.createTempFile("atomic-demo", ".properties");
+        try {
+            Files.writeString(configFile, "version=v3\nmax.connections=300\nunknown.key=1\n");
+            ScheduledExecutorService reloader = registry.startHotReload(configFile, 50);
+            Thread.sleep(200);
+            Files.writeString(configFile, "version=v4\nmax.connections=400\nfeature.fastPath=false\n");
+            Thread.sleep(200);
+            Files.writeString(configFile, "version=v5\nmax.connections=lots\n"); // Rejected, v4 stays
+            Thread.sleep(200);
+            reloader.shutdownNow();
+        } finally {
+            Files.deleteIfExists(configFile);
+        }
+        ConfigSnapshot finalConfig = registry.snapshot();
+        System.out.println("  Final: version " + finalConfig.getVersion() + ", " + finalConfig.get(versionKey)
+            + ", max=" + finalConfig.get(maxConnectionsKey));
         
         System.out.println("\n=== Key Takeaways ===");
         System.out.println("• Atomic classes: Lock-free thread safety");
@@ -333,6 +1101,22 @@ public class AtomicClassesDemo {
         System.out.println("• AtomicReference: Thread-safe object references");
         System.out.println("• CAS: Compare-And-Set for conditional updates");
         System.out.println("• Faster than locks for simple operations!");
+        System.out.println("• Striped counters: spread hot counters over padded cells under contention");
+        System.out.println("• Latency histograms: report p99/p99.9, averages hide the tail");
+        System.out.println("• Per-thread shards: record without contention, merge on read");
+        System.out.println("• Copy-on-write snapshots: lock-free reads, CAS-retry batched writes");
+    }
+    
+    // Runs the task on N threads at once and returns elapsed nanos
+    private static long timeThreads(int numThreads, Runnable task) throws InterruptedException {
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread(task);
+        }
+        long start = System.nanoTime();
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        return System.nanoTime() - start;
     }
 }
 
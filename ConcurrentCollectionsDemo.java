@@ -1,5 +1,13 @@
 import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.nio.charset.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
 
 public class ConcurrentCollectionsDemo {
     
@@ -7,161 +15,2616 @@ public class ConcurrentCollectionsDemo {
     // 1. ConcurrentHashMap Example
     // ============================================
     static class UserCache {
-        // Thread-safe map without external synchronization
-        private ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+        private static final int PROMOTE_AFTER_HITS = 2;
+        
+        // Thread-safe, size-bounded map without external synchronization (see BoundedCache)
+        private final BoundedCache<String, String> cache;
+        // Optional second tier: on-heap evictions are demoted here instead of dropped
+        private final OffHeapStore offHeap;
+        // Set during a warm restart: misses are served from the mapped file until rehydrated
+        private volatile CacheSnapshot.Reader warmSnapshot;
+        private final Set<String> writtenSinceWarmStart = ConcurrentHashMap.newKeySet();
+        
+        public UserCache() {
+            this(10_000);
+        }
+        
+        public UserCache(long maximumSize) {
+            this.cache = new BoundedCache<>(maximumSize);
+            this.offHeap = null;
+        }
+        
+        // Bounded by total key + value characters as well as entry count
+        public UserCache(long maximumSize, long maximumWeight) {
+            this.cache = new BoundedCache<>(maximumSize, maximumWeight,
+                (k, v) -> k.length() + v.length(), ForkJoinPool.commonPool());
+            this.offHeap = null;
+        }
+        
+        // Hot entries on-heap, the rest of the working set in direct memory
+        public static UserCache withOffHeapTier(long onHeapSize, long offHeapBytes) {
+            return new UserCache(onHeapSize, new OffHeapStore(offHeapBytes));
+        }
+        
+        private UserCache(long onHeapSize, OffHeapStore offHeap) {
+            this.offHeap = offHeap;
+            this.cache = new BoundedCache<>(onHeapSize, onHeapSize, (k, v) -> 1,
+                ForkJoinPool.commonPool(), offHeap::put);
+        }
         
         public void put(String key, String value) {
-            cache.put(key, value);
+            store(key, value);
             System.out.println("  Added: " + key + " = " + value);
         }
         
-        public String get(String key) {
-            return cache.get(key);
+        public String get(String key) {
+            String value = cache.get(key);
+            if (value == null && offHeap != null) {
+                OffHeapStore.Lookup lookup = offHeap.lookup(key, PROMOTE_AFTER_HITS);
+                if (lookup != null) {
+                    value = lookup.value;
+                    if (lookup.hot) {
+                        // Promote; a concurrent put of a newer value wins
+                        String newer = cache.putIfAbsent(key, value);
+                        if (newer != null) value = newer;
+                    }
+                }
+            }
+            CacheSnapshot.Reader snapshot = warmSnapshot;
+            if (value == null && snapshot != null && !writtenSinceWarmStart.contains(key)) {
+                value = snapshot.get(key);
+                if (value != null) {
+                    String newer = cache.putIfAbsent(key, value);
+                    if (newer != null) value = newer;
+                }
+            }
+            return value;
+        }
+        
+        // Read-through: load and cache on a miss (quiet, for hot paths)
+        public String getOrLoad(String key, Function<String, String> loader) {
+            String value = get(key);
+            if (value == null) {
+                value = loader.apply(key);
+                store(key, value);
+            }
+            return value;
+        }
+        
+        public boolean contains(String key) {
+            return cache.data.containsKey(key) || (offHeap != null && offHeap.containsKey(key));
+        }
+        
+        private void store(String key, String value) {
+            if (warmSnapshot != null) writtenSinceWarmStart.add(key); // Snapshot copy is now stale
+            String demoted = offHeap == null ? null : offHeap.peek(key);
+            cache.put(key, value);
+            // Drop the stale demoted copy, but not a newer one an eviction demoted meanwhile
+            if (demoted != null && !demoted.equals(value)) offHeap.remove(key, demoted);
+        }
+        
+        // Atomic operation: only put if absent
+        public String putIfAbsent(String key, String value) {
+            // A copy in the off-heap tier or the warm snapshot counts as present (and is promoted)
+            String existing = offHeap == null && warmSnapshot == null ? null : get(key);
+            if (existing == null) {
+                if (warmSnapshot != null) writtenSinceWarmStart.add(key); // Rehydration must not overwrite it
+                existing = cache.putIfAbsent(key, value);
+            }
+            if (existing == null) {
+                System.out.println("  Added: " + key + " = " + value);
+                return value;
+            } else {
+                System.out.println("  Key exists: " + key + " (kept old value: " + existing + ")");
+                return existing;
+            }
+        }
+        
+        // Counters live in a primitive map: no parse/format Strings per increment
+        private final ConcurrentCounterMap counters = new ConcurrentCounterMap();
+        
+        public long incrementCounter(String key) {
+            return counters.incrementAndGet(key);
+        }
+        
+        public long getCounter(String key) {
+            return counters.get(key);
+        }
+        
+        public void printCache() {
+            System.out.println("  Cache contents: " + cache);
+        }
+        
+        public void printStats() {
+            System.out.println(String.format("  Size: %d, hits: %d, misses: %d, evictions: %d, hit rate: %.1f%%",
+                cache.size(), cache.hitCount(), cache.missCount(), cache.evictionCount(), cache.hitRate() * 100));
+            if (offHeap != null) {
+                System.out.println(String.format("  Off-heap: %d entries, %d KB used of %d KB reserved, %d evictions",
+                    offHeap.size(), offHeap.usedBytes() / 1024, offHeap.reservedBytes() / 1024, offHeap.evictionCount()));
+            }
+        }
+        
+        public void cleanUp() {
+            cache.cleanUp();
+        }
+        
+        // On-heap (hot) entries first, then the off-heap tier. Both traversals are
+        // non-blocking for writers: ConcurrentHashMap iterates weakly consistently and
+        // the off-heap store locks one segment at a time, so each entry is copied
+        // as of some moment during the snapshot.
+        public long snapshotTo(Path file) throws IOException {
+            long written = 0;
+            try (CacheSnapshot.Writer writer = new CacheSnapshot.Writer(file)) {
+                for (Map.Entry<String, BoundedCache.Node<String, String>> entry : cache.data.entrySet()) {
+                    writer.append(entry.getKey(), entry.getValue().value);
+                    written++;
+                }
+                if (offHeap != null) {
+                    long[] offHeapWritten = {0};
+                    IOException[] failure = {null};
+                    offHeap.forEach((k, v) -> {
+                        if (failure[0] != null || cache.data.containsKey(k)) return;
+                        try {
+                            writer.append(k, v);
+                            offHeapWritten[0]++;
+                        } catch (IOException e) {
+                            failure[0] = e;
+                        }
+                    });
+                    if (failure[0] != null) throw failure[0];
+                    written += offHeapWritten[0];
+                }
+                writer.commit();
+            }
+            return written;
+        }
+        
+        public ScheduledExecutorService startPeriodicSnapshots(Path file, long periodMillis) {
+            ScheduledExecutorService snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Cache-Snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            snapshotter.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshotTo(file);
+                } catch (IOException e) {
+                    System.out.println("  [Snapshot] Failed: " + e.getMessage());
+                }
+            }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+            return snapshotter;
+        }
+        
+        // Serves misses from the mapped snapshot right away; the returned thread
+        // rehydrates the tiers in the background and then drops the mapping
+        public Thread warmStartFrom(Path file) throws IOException {
+            CacheSnapshot.Reader snapshot = new CacheSnapshot.Reader(file);
+            warmSnapshot = snapshot;
+            Thread rehydrate = new Thread(() -> {
+                try (snapshot) {
+                    long[] onHeap = {0};
+                    snapshot.forEach((k, v) -> {
+                        if (writtenSinceWarmStart.contains(k)) return;
+                        if (onHeap[0] < cache.maximumSize) {
+                            if (cache.putIfAbsent(k, v) == null) onHeap[0]++;
+                        } else if (offHeap != null) {
+                            offHeap.put(k, v);
+                        }
+                    });
+                } finally {
+                    warmSnapshot = null;
+                    writtenSinceWarmStart.clear();
+                }
+            }, "Cache-Rehydrate");
+            rehydrate.setDaemon(true);
+            rehydrate.start();
+            return rehydrate;
+        }
+    }
+    
+    // ============================================
+    // 2. CopyOnWriteArrayList Example
+    // ============================================
+    static class EventListeners {
+        // Thread-safe list optimized for reads
+        private CopyOnWriteArrayList<String> listeners = new CopyOnWriteArrayList<>();
+        
+        public void addListener(String listener) {
+            listeners.add(listener);
+            System.out.println("  Added listener: " + listener);
+        }
+        
+        public void removeListener(String listener) {
+            listeners.remove(listener);
+            System.out.println("  Removed listener: " + listener);
+        }
+        
+        public void notifyListeners(String event) {
+            // Safe to iterate while other threads modify
+            for (String listener : listeners) {
+                System.out.println("  Notifying " + listener + " about: " + event);
+            }
+        }
+        
+        public int getCount() {
+            return listeners.size();
+        }
+    }
+    
+    // ============================================
+    // 3. BlockingQueue Example (Producer-Consumer)
+    // ============================================
+    static class ProducerConsumer {
+        private BlockingQueue<String> queue = new LinkedBlockingQueue<>(5); // Max 5 items
+        
+        public void produce(String item) throws InterruptedException {
+            System.out.println("  Producer: Adding " + item + " to queue...");
+            queue.put(item); // Blocks if queue is full
+            System.out.println("  Producer: Added " + item + " (queue size: " + queue.size() + ")");
+        }
+        
+        public String consume() throws InterruptedException {
+            System.out.println("  Consumer: Waiting for item...");
+            String item = queue.take(); // Blocks if queue is empty
+            System.out.println("  Consumer: Got " + item + " (queue size: " + queue.size() + ")");
+            return item;
+        }
+    }
+    
+    // ============================================
+    // 4. ConcurrentLinkedQueue Example
+    // ============================================
+    static class TaskQueue {
+        // Lock-free, unbounded queue
+        private ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+        
+        public void addTask(String task) {
+            queue.offer(task);
+            System.out.println("  Added task: " + task);
+        }
+        
+        public String pollTask() {
+            String task = queue.poll();
+            if (task != null) {
+                System.out.println("  Polled task: " + task);
+            }
+            return task;
+        }
+        
+        public boolean isEmpty() {
+            return queue.isEmpty();
+        }
+    }
+    
+    // ============================================
+    // 5. Regular HashMap vs ConcurrentHashMap
+    // ============================================
+    static class HashMapComparison {
+        // Benchmark loops store their result here so the JIT can't drop the work
+        private static volatile long blackhole;
+        
+        public static void testRegularHashMap() throws InterruptedException {
+            Map<Integer, Integer> map = new HashMap<>();
+            
+            Thread[] threads = new Thread[10];
+            for (int i = 0; i < 10; i++) {
+                final int threadId = i;
+                threads[i] = new Thread(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        map.put(threadId * 100 + j, j);
+                    }
+                });
+            }
+            
+            for (Thread t : threads) t.start();
+            for (Thread t : threads) t.join();
+            
+            System.out.println("  Regular HashMap size: " + map.size() + " (might be wrong or crash!)");
+        }
+        
+        public static void testConcurrentHashMap() throws InterruptedException {
+            ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+            
+            Thread[] threads = new Thread[10];
+            for (int i = 0; i < 10; i++) {
+                final int threadId = i;
+                threads[i] = new Thread(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        map.put(threadId * 100 + j, j);
+                    }
+                });
+            }
+            
+            for (Thread t : threads) t.start();
+            for (Thread t : threads) t.join();
+            
+            System.out.println("  ConcurrentHashMap size: " + map.size() + " ✅ (always correct!)");
+        }
+        
+        // Footprint and single-pass put/get throughput at each size. HashMap
+        // runs on one thread; the concurrent maps split the keys over `threads`.
+        // A map whose estimated footprint would not fit in the heap is skipped.
+        public static void compareAtScale(int[] sizes, int threads) throws InterruptedException {
+            System.out.println(String.format("  %-12s %-18s %10s %8s %12s %12s",
+                "entries", "map", "footprint", "B/entry", "put Mops/s", "get Mops/s"));
+            for (int n : sizes) {
+                long intIntBytes = 8L * (Long.highestOneBit(Math.max(16, (long) (n / 0.5f) + 1) - 1) << 1);
+                if (fits(n * 80L)) {
+                    HashMap<Integer, Integer> map = new HashMap<>((int) Math.min(1 << 30, n * 4L / 3 + 1));
+                    long before = usedHeap();
+                    long putNanos = timeThreads(1, () -> {
+                        for (int i = 0; i < n; i++) map.put(key(i), i);
+                    });
+                    long footprint = usedHeap() - before;
+                    long getNanos = timeThreads(1, () -> {
+                        long sum = 0;
+                        for (int i = 0; i < n; i++) sum += map.get(key(i));
+                        blackhole = sum;
+                    });
+                    printRow(n, "HashMap", footprint, putNanos, getNanos);
+                } else {
+                    printSkipped(n, "HashMap", n * 80L);
+                }
+                if (fits(n * 80L)) {
+                    ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>((int) Math.min(1 << 30, n * 4L / 3 + 1));
+                    long before = usedHeap();
+                    long putNanos = timeSlices(n, threads, (from, to) -> {
+                        for (int i = from; i < to; i++) map.put(key(i), i);
+                    });
+                    long footprint = usedHeap() - before;
+                    long getNanos = timeSlices(n, threads, (from, to) -> {
+                        long sum = 0;
+                        for (int i = from; i < to; i++) sum += map.get(key(i));
+                        blackhole = sum;
+                    });
+                    printRow(n, "ConcurrentHashMap", footprint, putNanos, getNanos);
+                } else {
+                    printSkipped(n, "ConcurrentHashMap", n * 80L);
+                }
+                if (fits(intIntBytes)) {
+                    IntIntMap map = new IntIntMap(n, -1);
+                    long before = usedHeap();
+                    long putNanos = timeSlices(n, threads, (from, to) -> {
+                        for (int i = from; i < to; i++) map.put(key(i), i);
+                    });
+                    // Preallocated: the array counts as soon as the map exists
+                    long footprint = usedHeap() - before + intIntBytes;
+                    long getNanos = timeSlices(n, threads, (from, to) -> {
+                        long sum = 0;
+                        for (int i = from; i < to; i++) sum += map.get(key(i));
+                        blackhole = sum;
+                    });
+                    printRow(n, "IntIntMap", footprint, putNanos, getNanos);
+                } else {
+                    printSkipped(n, "IntIntMap", intIntBytes);
+                }
+            }
+        }
+        
+        // Scrambles the low bits
+        private static int key(int i) {
+            return i ^ 0x5BD1E995;
+        }
+        
+        private static long timeSlices(int n, int threads, BiConsumer<Integer, Integer> slice) throws InterruptedException {
+            AtomicInteger nextSlice = new AtomicInteger();
+            return timeThreads(threads, () -> {
+                int s = nextSlice.getAndIncrement();
+                slice.accept((int) ((long) n * s / threads), (int) ((long) n * (s + 1) / threads));
+            });
+        }
+        
+        private static boolean fits(long estimatedBytes) {
+            Runtime rt = Runtime.getRuntime();
+            return estimatedBytes < (rt.maxMemory() - usedHeap()) * 0.7;
+        }
+        
+        private static long usedHeap() {
+            Runtime rt = Runtime.getRuntime();
+            System.gc();
+            System.gc();
+            return rt.totalMemory() - rt.freeMemory();
+        }
+        
+        private static void printRow(int n, String name, long footprint, long putNanos, long getNanos) {
+            System.out.println(String.format("  %-12d %-18s %8dKB %8.1f %12.1f %12.1f", n, name,
+                footprint / 1024, (double) footprint / n, n * 1_000.0 / putNanos, n * 1_000.0 / getNanos));
+        }
+        
+        private static void printSkipped(int n, String name, long estimatedBytes) {
+            System.out.println(String.format("  %-12d %-18s skipped: needs ~%dMB, raise -Xmx", n, name, estimatedBytes >> 20));
+        }
+    }
+    
+    // ============================================
+    // 6. Bounded Cache (W-TinyLFU eviction)
+    // ============================================
+    // ConcurrentHashMap holds the data; eviction bookkeeping lives behind one lock
+    // that readers never take. get() drops a note in a lossy striped read buffer,
+    // writes go through a lossless write buffer, and a maintenance task replays
+    // both on the executor: a small LRU window feeds a segmented LRU main space
+    // (probation + protected), admission decided by a count-min frequency sketch.
+    static class BoundedCache<K, V> {
+        private static final int WRITE_BUFFER_THRESHOLD = 128;
+        
+        private enum QueueType { WINDOW, PROBATION, PROTECTED }
+        
+        static final class Node<K, V> {
+            final K key;
+            volatile V value;
+            volatile int weight;
+            volatile boolean alive = true;  // Cleared under synchronized(node)
+            // Owned by the maintenance task (evictionLock); null = not linked
+            QueueType queue;
+            int policyWeight;
+            Node<K, V> prev, next;
+            
+            Node(K key, V value, int weight) {
+                this.key = key;
+                this.value = value;
+                this.weight = weight;
+            }
+        }
+        
+        private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+        private final long maximumSize;
+        private final long maximumWeight;
+        private final ToIntBiFunction<K, V> weigher;
+        private final Executor executor;
+        private final BiConsumer<K, V> evictionListener;
+        
+        private final ReentrantLock evictionLock = new ReentrantLock();
+        private final ReadBuffer<Node<K, V>> readBuffer = new ReadBuffer<>();
+        private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingWrites = new AtomicInteger();
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+        
+        // Guarded by evictionLock
+        private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+        private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+        private final AccessOrderDeque<K, V> protectedQueue = new AccessOrderDeque<>();
+        private final FrequencySketch sketch;
+        private final long windowMaximum;
+        private final long protectedMaximum;
+        private long windowWeight, protectedWeight, weightedSize, entryCount;
+        
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        
+        public BoundedCache(long maximumSize) {
+            this(maximumSize, maximumSize, (k, v) -> 1, ForkJoinPool.commonPool());
+        }
+        
+        public BoundedCache(long maximumSize, long maximumWeight, ToIntBiFunction<K, V> weigher, Executor executor) {
+            this(maximumSize, maximumWeight, weigher, executor, null);
+        }
+        
+        // evictionListener runs on the maintenance thread for every size/weight eviction
+        public BoundedCache(long maximumSize, long maximumWeight, ToIntBiFunction<K, V> weigher,
+                            Executor executor, BiConsumer<K, V> evictionListener) {
+            if (maximumSize <= 0 || maximumWeight <= 0) {
+                throw new IllegalArgumentException("Cache bounds must be positive");
+            }
+            this.maximumSize = maximumSize;
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            this.executor = executor;
+            this.evictionListener = evictionListener;
+            this.windowMaximum = Math.max(1, maximumWeight / 100);          // 1% admission window
+            this.protectedMaximum = (maximumWeight - windowMaximum) * 8 / 10; // 80% of main is protected
+            this.sketch = new FrequencySketch((int) Math.min(maximumSize, 1 << 24));
+        }
+        
+        public V get(K key) {
+            Node<K, V> node = data.get(key);
+            if (node == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            if (!readBuffer.offer(node)) {
+                scheduleDrain(); // Buffer full: time to replay accesses
+            }
+            return node.value;
+        }
+        
+        // Returns the previous value, like Map.put
+        public V put(K key, V value) {
+            return put(key, value, false);
+        }
+        
+        // Returns the existing value, or null if this call inserted
+        public V putIfAbsent(K key, V value) {
+            return put(key, value, true);
+        }
+        
+        public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+            while (true) {
+                Node<K, V> node = data.get(key);
+                if (node == null) {
+                    // The insert runs inside the map's own computeIfAbsent, so two racing
+                    // callers can't both apply the function; the loser updates below
+                    List<Node<K, V>> created = new ArrayList<>(1);
+                    Node<K, V> current = data.computeIfAbsent(key, k -> {
+                        V value = remapping.apply(k, null);
+                        if (value == null) return null;
+                        Node<K, V> fresh = new Node<>(k, value, weigher.applyAsInt(k, value));
+                        created.add(fresh);
+                        return fresh;
+                    });
+                    if (!created.isEmpty()) {
+                        Node<K, V> fresh = created.get(0);
+                        afterWrite(() -> onAdd(fresh));
+                        return fresh.value;
+                    }
+                    if (current == null) return null;
+                    continue;
+                }
+                V value;
+                synchronized (node) {
+                    if (!node.alive) continue; // Evicted under us: retry against the map
+                    value = remapping.apply(key, node.value);
+                    if (value == null) {
+                        node.alive = false;
+                        data.remove(key, node);
+                    } else {
+                        node.value = value;
+                        node.weight = weigher.applyAsInt(key, value);
+                    }
+                }
+                afterWrite(value == null ? () -> onRemove(node) : () -> onUpdate(node));
+                return value;
+            }
+        }
+        
+        public V remove(K key) {
+            Node<K, V> node = data.get(key);
+            if (node == null) return null;
+            synchronized (node) {
+                if (!node.alive) return null;
+                node.alive = false;
+                data.remove(key, node);
+            }
+            afterWrite(() -> onRemove(node));
+            return node.value;
+        }
+        
+        public long size() {
+            return data.size();
+        }
+        
+        public long hitCount() { return hits.sum(); }
+        public long missCount() { return misses.sum(); }
+        public long evictionCount() { return evictions.sum(); }
+        
+        public double hitRate() {
+            long h = hits.sum(), m = misses.sum();
+            return h + m == 0 ? 1.0 : (double) h / (h + m);
+        }
+        
+        // Runs pending maintenance on the caller's thread
+        public void cleanUp() {
+            evictionLock.lock();
+            try {
+                maintenance();
+            } finally {
+                unlockEvictionLock();
+            }
+        }
+        
+        @Override
+        public String toString() {
+            StringJoiner joiner = new StringJoiner(", ", "{", "}");
+            data.forEach((k, node) -> joiner.add(k + "=" + node.value));
+            return joiner.toString();
+        }
+        
+        private V put(K key, V value, boolean onlyIfAbsent) {
+            int weight = weigher.applyAsInt(key, value);
+            while (true) {
+                Node<K, V> node = data.get(key);
+                if (node == null) {
+                    Node<K, V> created = new Node<>(key, value, weight);
+                    node = data.putIfAbsent(key, created);
+                    if (node == null) {
+                        afterWrite(() -> onAdd(created));
+                        return null;
+                    }
+                }
+                if (onlyIfAbsent) {
+                    V existing = node.value;
+                    if (!readBuffer.offer(node)) scheduleDrain();
+                    return existing;
+                }
+                V old;
+                synchronized (node) {
+                    if (!node.alive) continue;
+                    old = node.value;
+                    node.value = value;
+                    node.weight = weight;
+                }
+                Node<K, V> updated = node;
+                afterWrite(() -> onUpdate(updated));
+                return old;
+            }
+        }
+        
+        private void afterWrite(Runnable task) {
+            writeBuffer.add(task);
+            if (pendingWrites.incrementAndGet() > WRITE_BUFFER_THRESHOLD) {
+                // Writers outrunning maintenance: help out instead of growing unbounded
+                cleanUp();
+            } else {
+                scheduleDrain();
+            }
+        }
+        
+        private void scheduleDrain() {
+            if (drainScheduled.compareAndSet(false, true)) {
+                executor.execute(() -> {
+                    drainScheduled.set(false);
+                    if (evictionLock.tryLock()) {
+                        try {
+                            maintenance();
+                        } finally {
+                            unlockEvictionLock();
+                        }
+                    }
+                });
+            }
+        }
+        
+        // A drain that found the lock held was skipped, so whoever held it looks
+        // for writes that queued meanwhile and schedules another pass
+        private void unlockEvictionLock() {
+            evictionLock.unlock();
+            if (!writeBuffer.isEmpty()) scheduleDrain();
+        }
+        
+        private void maintenance() {
+            readBuffer.drainTo(this::onAccess);
+            Runnable task;
+            while ((task = writeBuffer.poll()) != null) {
+                pendingWrites.decrementAndGet();
+                task.run();
+            }
+            evictEntries();
+        }
+        
+        private void onAccess(Node<K, V> node) {
+            if (node.queue == null) return; // Not linked yet, or already gone
+            sketch.increment(node.key.hashCode());
+            switch (node.queue) {
+                case WINDOW:
+                    window.moveToBack(node);
+                    break;
+                case PROBATION:
+                    // Second hit in main space: promote, demoting protected overflow
+                    probation.remove(node);
+                    node.queue = QueueType.PROTECTED;
+                    protectedQueue.add(node);
+                    protectedWeight += node.policyWeight;
+                    while (protectedWeight > protectedMaximum) {
+                        Node<K, V> demoted = protectedQueue.poll();
+                        protectedWeight -= demoted.policyWeight;
+                        demoted.queue = QueueType.PROBATION;
+                        probation.add(demoted);
+                    }
+                    break;
+                case PROTECTED:
+                    protectedQueue.moveToBack(node);
+                    break;
+            }
+        }
+        
+        private void onAdd(Node<K, V> node) {
+            if (!node.alive) return; // Already removed before maintenance saw it
+            sketch.increment(node.key.hashCode());
+            node.policyWeight = node.weight;
+            node.queue = QueueType.WINDOW;
+            window.add(node);
+            windowWeight += node.policyWeight;
+            weightedSize += node.policyWeight;
+            entryCount++;
+        }
+        
+        private void onUpdate(Node<K, V> node) {
+            if (node.queue == null) return;
+            int delta = node.weight - node.policyWeight;
+            node.policyWeight = node.weight;
+            weightedSize += delta;
+            if (node.queue == QueueType.WINDOW) windowWeight += delta;
+            if (node.queue == QueueType.PROTECTED) protectedWeight += delta;
+            onAccess(node);
+        }
+        
+        private void onRemove(Node<K, V> node) {
+            if (node.queue != null) unlink(node);
+        }
+        
+        private void evictEntries() {
+            // Window overflow becomes candidates at the back of probation
+            int candidates = 0;
+            while (windowWeight > windowMaximum && window.peek() != null) {
+                Node<K, V> node = window.poll();
+                windowWeight -= node.policyWeight;
+                node.queue = QueueType.PROBATION;
+                probation.add(node);
+                candidates++;
+            }
+            while (weightedSize > maximumWeight || entryCount > maximumSize) {
+                Node<K, V> victim = probation.peek();
+                Node<K, V> candidate = candidates > 0 ? probation.peekLast() : null;
+                if (victim == null) {
+                    victim = protectedQueue.peek() != null ? protectedQueue.peek() : window.peek();
+                    if (victim == null) break;
+                    evict(victim);
+                } else if (candidate == null || candidate == victim) {
+                    evict(victim);
+                    if (candidate == victim) candidates--;
+                } else if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                    evict(victim);  // Candidate has been seen more often: admit it
+                } else {
+                    evict(candidate);
+                    candidates--;
+                }
+            }
+        }
+        
+        private void evict(Node<K, V> node) {
+            unlink(node);
+            boolean evicted = false;
+            synchronized (node) {
+                if (node.alive) {
+                    node.alive = false;
+                    data.remove(node.key, node);
+                    evictions.increment();
+                    evicted = true;
+                }
+            }
+            if (evicted && evictionListener != null) {
+                evictionListener.accept(node.key, node.value);
+            }
+        }
+        
+        private void unlink(Node<K, V> node) {
+            switch (node.queue) {
+                case WINDOW: window.remove(node); windowWeight -= node.policyWeight; break;
+                case PROBATION: probation.remove(node); break;
+                case PROTECTED: protectedQueue.remove(node); protectedWeight -= node.policyWeight; break;
+            }
+            weightedSize -= node.policyWeight;
+            entryCount--;
+            node.prev = node.next = null;
+            node.queue = null;
+        }
+        
+        // Intrusive doubly-linked LRU list: head = least recently used
+        static final class AccessOrderDeque<K, V> {
+            Node<K, V> first, last;
+            
+            void add(Node<K, V> node) {
+                node.prev = last;
+                node.next = null;
+                if (last == null) first = node; else last.next = node;
+                last = node;
+            }
+            
+            void remove(Node<K, V> node) {
+                if (node.prev == null) first = node.next; else node.prev.next = node.next;
+                if (node.next == null) last = node.prev; else node.next.prev = node.prev;
+                node.prev = node.next = null;
+            }
+            
+            void moveToBack(Node<K, V> node) {
+                if (node != last) {
+                    remove(node);
+                    add(node);
+                }
+            }
+            
+            Node<K, V> peek() { return first; }
+            Node<K, V> peekLast() { return last; }
+            
+            Node<K, V> poll() {
+                Node<K, V> node = first;
+                if (node != null) remove(node);
+                return node;
+            }
+        }
+    }
+    
+    // Count-min sketch of 4-bit counters, 16 per long. Counters are halved every
+    // 10 * capacity increments so old popularity fades out.
+    static final class FrequencySketch {
+        private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+        
+        FrequencySketch(int capacity) {
+            int size = Integer.highestOneBit(Math.max(64, capacity - 1)) << 1;
+            this.table = new long[size];
+            this.sampleSize = 10 * Math.max(capacity, 16);
+        }
+        
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int h = spread(hash, i);
+                frequency = Math.min(frequency, (int) ((table[h & (table.length - 1)] >>> counterShift(h)) & 0xF));
+            }
+            return frequency;
+        }
+        
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int h = spread(hash, i);
+                int index = h & (table.length - 1);
+                int shift = counterShift(h);
+                if (((table[index] >>> shift) & 0xF) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+        
+        private static int spread(int hash, int seed) {
+            int h = (hash ^ (0x9E3779B9 * (seed + 1))) * 0x85EBCA6B;
+            return h ^ (h >>> 15);
+        }
+        
+        private static int counterShift(int h) {
+            return ((h >>> 24) & 0xF) << 2;
+        }
+    }
+    
+    // Lossy, striped ring buffers: a full stripe just drops the access record
+    static final class ReadBuffer<E> {
+        private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+        private static final int SIZE = 16;
+        private static final int PAD = 8; // Counters 64 bytes apart
+        private final AtomicReferenceArray<E> slots = new AtomicReferenceArray<>(STRIPES * SIZE);
+        private final AtomicLongArray writeCounts = new AtomicLongArray(STRIPES * PAD);
+        private final AtomicLongArray readCounts = new AtomicLongArray(STRIPES * PAD); // Written by the drainer only
+        
+        // Returns false once the stripe is half full (or full) and should be drained
+        boolean offer(E e) {
+            int stripe = (int) (Thread.currentThread().getId() * 0x9E3779B9L >>> 16) & (STRIPES - 1);
+            long tail = writeCounts.get(stripe * PAD);
+            long size = tail - readCounts.get(stripe * PAD);
+            if (size >= SIZE) return false;
+            if (writeCounts.compareAndSet(stripe * PAD, tail, tail + 1)) {
+                slots.lazySet(stripe * SIZE + (int) (tail & (SIZE - 1)), e);
+            }
+            return size < SIZE / 2;
+        }
+        
+        void drainTo(Consumer<E> consumer) {
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                long head = readCounts.get(stripe * PAD);
+                long tail = writeCounts.get(stripe * PAD);
+                for (; head < tail; head++) {
+                    E e = slots.getAndSet(stripe * SIZE + (int) (head & (SIZE - 1)), null);
+                    if (e == null) break; // Claimed but not yet published
+                    consumer.accept(e);
+                }
+                readCounts.lazySet(stripe * PAD, head);
+            }
+        }
+    }
+    
+    // ============================================
+    // 7. Primitive Counter Map (String -> long)
+    // ============================================
+    // Open addressing with primitive long values: after a key's first insert,
+    // incrementing it allocates nothing. Keys are spread over independently
+    // locked segments, and each segment resizes on its own, so a resize only
+    // stalls the keys that hash into that one segment.
+    static class ConcurrentCounterMap {
+        private static final float LOAD_FACTOR = 0.5f;
+        private final Segment[] segments;
+        
+        public ConcurrentCounterMap() {
+            this(Runtime.getRuntime().availableProcessors() * 4, 16);
+        }
+        
+        public ConcurrentCounterMap(int concurrencyLevel, int initialCapacityPerSegment) {
+            int count = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1)) << 1;
+            segments = new Segment[count];
+            for (int i = 0; i < count; i++) {
+                segments[i] = new Segment(Integer.highestOneBit(Math.max(2, initialCapacityPerSegment) - 1) << 1);
+            }
+        }
+        
+        public long incrementAndGet(String key) {
+            return addAndGet(key, 1);
+        }
+        
+        public long addAndGet(String key, long delta) {
+            int h = spread(key.hashCode());
+            return segmentFor(h).addAndGet(key, h, delta);
+        }
+        
+        // 0 for keys that were never counted
+        public long get(String key) {
+            int h = spread(key.hashCode());
+            return segmentFor(h).get(key, h);
+        }
+        
+        public int size() {
+            int size = 0;
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    size += segment.size;
+                }
+            }
+            return size;
+        }
+        
+        // Copies one segment at a time: each segment is internally consistent,
+        // counters in other segments may move on while we iterate
+        public Iterator<CounterEntry> snapshotIterator() {
+            List<CounterEntry> entries = new ArrayList<>();
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    for (int i = 0; i < segment.keys.length; i++) {
+                        if (segment.keys[i] != null) {
+                            entries.add(new CounterEntry(segment.keys[i], segment.values[i]));
+                        }
+                    }
+                }
+            }
+            return entries.iterator();
+        }
+        
+        private Segment segmentFor(int h) {
+            // High bits pick the segment, low bits the slot inside it
+            return segments[(h >>> 16) & (segments.length - 1)];
+        }
+        
+        private static int spread(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+        
+        static final class CounterEntry {
+            final String key;
+            final long value;
+            
+            CounterEntry(String key, long value) {
+                this.key = key;
+                this.value = value;
+            }
+            
+            @Override
+            public String toString() {
+                return key + "=" + value;
+            }
+        }
+        
+        private static final class Segment {
+            String[] keys;
+            long[] values;
+            int size;
+            
+            Segment(int capacity) {
+                keys = new String[capacity];
+                values = new long[capacity];
+            }
+            
+            synchronized long addAndGet(String key, int h, long delta) {
+                int i = indexOf(keys, key, h);
+                if (keys[i] == null) {
+                    if (size + 1 > keys.length * LOAD_FACTOR) {
+                        resize();
+                        i = indexOf(keys, key, h);
+                    }
+                    keys[i] = key;
+                    size++;
+                }
+                return values[i] += delta;
+            }
+            
+            synchronized long get(String key, int h) {
+                int i = indexOf(keys, key, h);
+                return keys[i] == null ? 0 : values[i];
+            }
+            
+            // Linear probing: the key's slot, or the empty slot where it belongs
+            private static int indexOf(String[] keys, String key, int h) {
+                int mask = keys.length - 1;
+                int i = h & mask;
+                while (keys[i] != null && !keys[i].equals(key)) {
+                    i = (i + 1) & mask;
+                }
+                return i;
+            }
+            
+            private void resize() {
+                String[] oldKeys = keys;
+                long[] oldValues = values;
+                keys = new String[oldKeys.length * 2];
+                values = new long[oldKeys.length * 2];
+                for (int j = 0; j < oldKeys.length; j++) {
+                    if (oldKeys[j] != null) {
+                        int i = indexOf(keys, oldKeys[j], spread(oldKeys[j].hashCode()));
+                        keys[i] = oldKeys[j];
+                        values[i] = oldValues[j];
+                    }
+                }
+            }
+        }
+    }
+    
+    // ============================================
+    // 8. Off-Heap Store (slab-allocated direct memory)
+    // ============================================
+    // Entries are serialized into 1MB direct ByteBuffers, so the GC sees a few
+    // slabs and two primitive arrays per segment instead of millions of Strings.
+    // Each slab is carved into equal chunks of one power-of-two size class; the
+    // on-heap index maps a 64-bit key hash to (slab, offset), and the key bytes
+    // stored off-heap resolve hash collisions.
+    static class OffHeapStore {
+        private static final int SLAB_SIZE = 1 << 20;
+        private static final int MIN_CHUNK_SHIFT = 6;   // 64 bytes
+        private static final int MAX_CHUNK_SHIFT = 16;  // 64KB, larger entries stay on-heap only
+        private static final int HEADER = 12;           // keyLength, valueLength, hits
+        
+        private final Segment[] segments;
+        private final AtomicLong usedBytes = new AtomicLong();
+        private final AtomicLong reservedBytes = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+        
+        // Result of a lookup: the value, and whether it has been read often enough to promote
+        static final class Lookup {
+            final String value;
+            final boolean hot;
+            
+            Lookup(String value, boolean hot) {
+                this.value = value;
+                this.hot = hot;
+            }
+        }
+        
+        public OffHeapStore(long maxBytes) {
+            int count = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+            long perSegment = Math.max(SLAB_SIZE, maxBytes / count);
+            segments = new Segment[count];
+            for (int i = 0; i < count; i++) {
+                segments[i] = new Segment(perSegment);
+            }
+        }
+        
+        // False if the entry is too large for the biggest chunk class
+        public boolean put(String key, String value) {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+            int total = HEADER + keyBytes.length + valueBytes.length;
+            if (total > 1 << MAX_CHUNK_SHIFT) return false;
+            long hash = hash(key);
+            return segmentFor(hash).put(hash, keyBytes, valueBytes, sizeClass(total));
+        }
+        
+        public String get(String key) {
+            Lookup lookup = lookup(key, Integer.MAX_VALUE);
+            return lookup == null ? null : lookup.value;
+        }
+        
+        // A peek: unlike get() it does not count a hit, so it never moves an entry toward promotion
+        public boolean containsKey(String key) {
+            long hash = hash(key);
+            return segmentFor(hash).contains(hash, key.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        // Like containsKey(), does not count a hit
+        public String peek(String key) {
+            long hash = hash(key);
+            return segmentFor(hash).peek(hash, key.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        // Counts a hit; once an entry reaches promoteAfterHits it is removed and reported hot
+        public Lookup lookup(String key, int promoteAfterHits) {
+            long hash = hash(key);
+            return segmentFor(hash).lookup(hash, key.getBytes(StandardCharsets.UTF_8), promoteAfterHits);
+        }
+        
+        public boolean remove(String key) {
+            long hash = hash(key);
+            return segmentFor(hash).remove(hash, key.getBytes(StandardCharsets.UTF_8), null);
+        }
+        
+        // Only if the stored value is still this one, like ConcurrentMap.remove(key, value)
+        public boolean remove(String key, String value) {
+            long hash = hash(key);
+            return segmentFor(hash).remove(hash, key.getBytes(StandardCharsets.UTF_8),
+                value.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        public long size() {
+            long size = 0;
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    size += segment.size;
+                }
+            }
+            return size;
+        }
+        
+        // Locks one segment at a time, so writers to the other segments keep going
+        public void forEach(BiConsumer<String, String> action) {
+            for (Segment segment : segments) {
+                segment.forEach(action);
+            }
+        }
+        
+        // Bytes in live chunks
+        public long usedBytes() { return usedBytes.get(); }
+        // Bytes of direct memory reserved for slabs
+        public long reservedBytes() { return reservedBytes.get(); }
+        public long evictionCount() { return evictions.get(); }
+        
+        private Segment segmentFor(long hash) {
+            return segments[(int) (hash >>> 40) & (segments.length - 1)];
+        }
+        
+        // 64-bit FNV-1a over the chars, no allocation; 0 is reserved for empty slots
+        static long hash(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h = (h ^ key.charAt(i)) * 0x100000001b3L;
+            }
+            return h == 0 ? 1 : h;
+        }
+        
+        private static int sizeClass(int bytes) {
+            int shift = 32 - Integer.numberOfLeadingZeros(Math.max(bytes, 1 << MIN_CHUNK_SHIFT) - 1);
+            return shift - MIN_CHUNK_SHIFT;
+        }
+        
+        private final class Segment {
+            private final long budget;
+            private final List<ByteBuffer> slabs = new ArrayList<>();
+            private final List<Integer> slabClasses = new ArrayList<>();
+            private final int classes = MAX_CHUNK_SHIFT - MIN_CHUNK_SHIFT + 1;
+            private final long[][] freeLists = new long[classes][16];
+            private final int[] freeCounts = new int[classes];
+            private final int[] bumpSlab = new int[classes];
+            private final int[] bumpOffset = new int[classes];
+            
+            // Linear-probing index: hash -> location (slab << 32 | offset)
+            private long[] hashes = new long[1024];
+            private long[] locations = new long[1024];
+            private int size;
+            private int clockHand;
+            private int slabClock;
+            
+            Segment(long budget) {
+                this.budget = budget;
+                Arrays.fill(bumpSlab, -1);
+            }
+            
+            synchronized boolean put(long hash, byte[] key, byte[] value, int cls) {
+                int existing = find(hash, key);
+                if (existing >= 0) removeAt(existing);
+                long location = allocate(cls);
+                if (location < 0) return false;
+                ByteBuffer slab = slabs.get((int) (location >>> 32));
+                int offset = (int) location;
+                slab.putInt(offset, key.length);
+                slab.putInt(offset + 4, value.length);
+                slab.putInt(offset + 8, 0);
+                slab.put(offset + HEADER, key);
+                slab.put(offset + HEADER + key.length, value);
+                if (size + 1 > hashes.length / 2) growIndex();
+                insert(hash, location);
+                return true;
+            }
+            
+            synchronized Lookup lookup(long hash, byte[] key, int promoteAfterHits) {
+                int slot = find(hash, key);
+                if (slot < 0) return null;
+                ByteBuffer slab = slabs.get((int) (locations[slot] >>> 32));
+                int offset = (int) locations[slot];
+                byte[] value = valueAt(locations[slot]);
+                int hits = slab.getInt(offset + 8) + 1;
+                slab.putInt(offset + 8, hits);
+                boolean hot = hits >= promoteAfterHits;
+                if (hot) removeAt(slot);
+                return new Lookup(new String(value, StandardCharsets.UTF_8), hot);
+            }
+            
+            synchronized String peek(long hash, byte[] key) {
+                int slot = find(hash, key);
+                return slot < 0 ? null : new String(valueAt(locations[slot]), StandardCharsets.UTF_8);
+            }
+            
+            synchronized void forEach(BiConsumer<String, String> action) {
+                for (int i = 0; i < hashes.length; i++) {
+                    if (hashes[i] == 0) continue;
+                    ByteBuffer slab = slabs.get((int) (locations[i] >>> 32));
+                    int offset = (int) locations[i];
+                    byte[] key = new byte[slab.getInt(offset)];
+                    byte[] value = new byte[slab.getInt(offset + 4)];
+                    slab.get(offset + HEADER, key);
+                    slab.get(offset + HEADER + key.length, value);
+                    action.accept(new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8));
+                }
+            }
+            
+            synchronized boolean contains(long hash, byte[] key) {
+                return find(hash, key) >= 0;
+            }
+            
+            // A null expectedValue removes whatever is stored
+            synchronized boolean remove(long hash, byte[] key, byte[] expectedValue) {
+                int slot = find(hash, key);
+                if (slot < 0) return false;
+                if (expectedValue != null && !Arrays.equals(valueAt(locations[slot]), expectedValue)) return false;
+                removeAt(slot);
+                return true;
+            }
+            
+            private byte[] valueAt(long location) {
+                ByteBuffer slab = slabs.get((int) (location >>> 32));
+                int offset = (int) location;
+                byte[] value = new byte[slab.getInt(offset + 4)];
+                slab.get(offset + HEADER + slab.getInt(offset), value);
+                return value;
+            }
+            
+            private int find(long hash, byte[] key) {
+                int mask = hashes.length - 1;
+                for (int i = home(hash, mask); hashes[i] != 0; i = (i + 1) & mask) {
+                    if (hashes[i] == hash && keyEquals(locations[i], key)) return i;
+                }
+                return -1;
+            }
+            
+            private boolean keyEquals(long location, byte[] key) {
+                ByteBuffer slab = slabs.get((int) (location >>> 32));
+                int offset = (int) location;
+                if (slab.getInt(offset) != key.length) return false;
+                for (int i = 0; i < key.length; i++) {
+                    if (slab.get(offset + HEADER + i) != key[i]) return false;
+                }
+                return true;
+            }
+            
+            private void insert(long hash, long location) {
+                int mask = hashes.length - 1;
+                int i = home(hash, mask);
+                while (hashes[i] != 0) i = (i + 1) & mask;
+                hashes[i] = hash;
+                locations[i] = location;
+                size++;
+            }
+            
+            // Frees the chunk, then shifts later probe-chain entries back (no tombstones)
+            private void removeAt(int slot) {
+                free(locations[slot]);
+                int mask = hashes.length - 1;
+                int hole = slot;
+                for (int i = (slot + 1) & mask; hashes[i] != 0; i = (i + 1) & mask) {
+                    int home = home(hashes[i], mask);
+                    // Move i into the hole unless its home lies cyclically in (hole, i]
+                    if (((i - home) & mask) >= ((i - hole) & mask)) {
+                        hashes[hole] = hashes[i];
+                        locations[hole] = locations[i];
+                        hole = i;
+                    }
+                }
+                hashes[hole] = 0;
+                size--;
+            }
+            
+            private void growIndex() {
+                long[] oldHashes = hashes;
+                long[] oldLocations = locations;
+                hashes = new long[oldHashes.length * 2];
+                locations = new long[oldHashes.length * 2];
+                size = 0;
+                for (int i = 0; i < oldHashes.length; i++) {
+                    if (oldHashes[i] != 0) insert(oldHashes[i], oldLocations[i]);
+                }
+            }
+            
+            private long allocate(int cls) {
+                int chunk = 1 << (cls + MIN_CHUNK_SHIFT);
+                if (freeCounts[cls] == 0) {
+                    int slabId = bumpSlab[cls];
+                    if (slabId < 0 || bumpOffset[cls] + chunk > SLAB_SIZE) {
+                        if ((long) (slabs.size() + 1) * SLAB_SIZE <= budget) {
+                            slabs.add(ByteBuffer.allocateDirect(SLAB_SIZE));
+                            slabClasses.add(cls);
+                            reservedBytes.addAndGet(SLAB_SIZE);
+                            bumpSlab[cls] = slabs.size() - 1;
+                            bumpOffset[cls] = 0;
+                        } else if (!evictOne(cls) && !reassignSlab(cls)) {
+                            return -1;
+                        }
+                    }
+                }
+                usedBytes.addAndGet(chunk);
+                if (freeCounts[cls] > 0) {
+                    return freeLists[cls][--freeCounts[cls]];
+                }
+                long location = ((long) bumpSlab[cls] << 32) | bumpOffset[cls];
+                bumpOffset[cls] += chunk;
+                return location;
+            }
+            
+            private void free(long location) {
+                int cls = slabClasses.get((int) (location >>> 32));
+                usedBytes.addAndGet(-(1 << (cls + MIN_CHUNK_SHIFT)));
+                if (freeCounts[cls] == freeLists[cls].length) {
+                    freeLists[cls] = Arrays.copyOf(freeLists[cls], freeCounts[cls] * 2);
+                }
+                freeLists[cls][freeCounts[cls]++] = location;
+            }
+            
+            // Budget exhausted: clock sweep for an entry of the same size class
+            private boolean evictOne(int cls) {
+                int mask = hashes.length - 1;
+                for (int n = 0; n <= mask; n++) {
+                    int i = clockHand;
+                    clockHand = (clockHand + 1) & mask;
+                    if (hashes[i] != 0 && slabClasses.get((int) (locations[i] >>> 32)) == cls) {
+                        removeAt(i);
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                }
+                return false;
+            }
+            
+            // No entry of this class to evict: empty a whole slab (round robin)
+            // and hand it over, so size classes cannot starve each other forever
+            private boolean reassignSlab(int cls) {
+                if (slabs.isEmpty()) return false;
+                int victim = slabClock++ % slabs.size();
+                int oldCls = slabClasses.get(victim);
+                for (int i = 0; i < hashes.length; ) {
+                    if (hashes[i] != 0 && (int) (locations[i] >>> 32) == victim) {
+                        removeAt(i); // Backshift may pull another entry into i: re-check it
+                        evictions.incrementAndGet();
+                    } else {
+                        i++;
+                    }
+                }
+                int kept = 0;
+                for (int j = 0; j < freeCounts[oldCls]; j++) {
+                    if ((int) (freeLists[oldCls][j] >>> 32) != victim) {
+                        freeLists[oldCls][kept++] = freeLists[oldCls][j];
+                    }
+                }
+                freeCounts[oldCls] = kept;
+                if (bumpSlab[oldCls] == victim) bumpSlab[oldCls] = -1;
+                slabClasses.set(victim, cls);
+                bumpSlab[cls] = victim;
+                bumpOffset[cls] = 0;
+                return true;
+            }
+            
+            private int home(long hash, int mask) {
+                return (int) (hash ^ (hash >>> 32)) & mask;
+            }
+        }
+    }
+    
+    // ============================================
+    // 9. Memory-Mapped Cache Snapshot
+    // ============================================
+    // File layout: a 32-byte header, then append-only data segments of
+    // [keyLength][valueLength][key][value] records (a record never straddles a
+    // segment, and every segment keeps 4 bytes for the keyLength -1 that marks
+    // its end), then an open-addressing
+    // index of (key hash, record offset) pairs so reads can be served straight
+    // from the mapping.
+    static class CacheSnapshot {
+        private static final int MAGIC = 0x55434348; // "UCCH"
+        private static final int FORMAT_VERSION = 1;
+        private static final int HEADER_SIZE = 32;
+        private static final long SEGMENT_SIZE = 64L << 20;
+        
+        // Writes to a temp file and renames it into place, so readers only ever see complete snapshots
+        static final class Writer implements Closeable {
+            private final Path target;
+            private final Path temp;
+            private final FileChannel channel;
+            private MappedByteBuffer segment;
+            private long segmentStart;
+            private long[] hashes = new long[1024];
+            private long[] offsets = new long[1024];
+            private int count;
+            private boolean committed;
+            
+            Writer(Path target) throws IOException {
+                this.target = target.toAbsolutePath();
+                // Unique per writer so concurrent snapshots of the same target don't share a temp file;
+                // same directory so the final move stays an atomic rename
+                this.temp = Files.createTempFile(this.target.getParent(), target.getFileName() + ".", ".tmp");
+                this.channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+                this.segment.position(HEADER_SIZE);
+            }
+            
+            void append(String key, String value) throws IOException {
+                byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+                int length = 8 + keyBytes.length + valueBytes.length;
+                if (length + 4 > SEGMENT_SIZE - HEADER_SIZE) {
+                    throw new IllegalArgumentException("Entry too large for a snapshot segment: " + key);
+                }
+                if (segment.remaining() < length + 4) { // Always leave room for the end marker
+                    segment.putInt(-1);
+                    segment.force(); // commit() only forces the segment it ends on
+                    segmentStart += SEGMENT_SIZE;
+                    segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, SEGMENT_SIZE);
+                }
+                if (count == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                hashes[count] = OffHeapStore.hash(key);
+                offsets[count] = segmentStart + segment.position();
+                count++;
+                segment.putInt(keyBytes.length).putInt(valueBytes.length).put(keyBytes).put(valueBytes);
+            }
+            
+            // Index + header, force to disk, then atomically publish under the final name
+            void commit() throws IOException {
+                long dataEnd = segmentStart + segment.position();
+                segment.putInt(-1);
+                segment.force();
+                int capacity = Integer.highestOneBit(Math.max(2, count * 2) - 1) << 1;
+                long indexOffset = (dataEnd + 4 + 7) & ~7L; // Past the end marker, 8-byte aligned
+                long indexBytes = (long) capacity * 16;
+                if (indexBytes > Integer.MAX_VALUE) throw new IOException("Snapshot index too large: " + count);
+                MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, indexOffset, indexBytes);
+                for (int i = 0; i < count; i++) {
+                    int slot = (int) (hashes[i] ^ (hashes[i] >>> 32)) & (capacity - 1);
+                    while (index.getLong(slot * 16) != 0) slot = (slot + 1) & (capacity - 1);
+                    index.putLong(slot * 16, hashes[i]);
+                    index.putLong(slot * 16 + 8, offsets[i]);
+                }
+                index.force();
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(count).putLong(indexOffset).putInt(capacity);
+                header.force();
+                channel.truncate(indexOffset + indexBytes);
+                channel.force(true); // The truncated length is file metadata
+                channel.close();
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                committed = true;
+                syncDirectory(target.getParent());
+            }
+            
+            // Makes the rename itself durable. Not every platform lets a directory be opened
+            // for this, in which case the rename is as durable as the OS makes it.
+            private static void syncDirectory(Path directory) {
+                try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+                    dir.force(true);
+                } catch (IOException e) {
+                    // Unsupported here (e.g. Windows)
+                }
+            }
+            
+            @Override
+            public void close() throws IOException {
+                if (!committed) {
+                    channel.close();
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+        
+        // Read-only view over a committed snapshot; lookups read the mapping directly.
+        // The channel is closed once mapped. close() drops the mappings, which the JDK
+        // unmaps when they are collected; a closed reader finds nothing.
+        static final class Reader implements Closeable {
+            private volatile MappedByteBuffer[] segments;
+            private volatile MappedByteBuffer index;
+            private final long count;
+            private final int capacity;
+            
+            Reader(Path file) throws IOException {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                    if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                        throw new IOException("Not a cache snapshot: " + file);
+                    }
+                    count = header.getLong();
+                    long indexOffset = header.getLong();
+                    capacity = header.getInt();
+                    int segmentCount = (int) ((indexOffset + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+                    MappedByteBuffer[] mapped = new MappedByteBuffer[segmentCount];
+                    for (int i = 0; i < segmentCount; i++) {
+                        long start = i * SEGMENT_SIZE;
+                        mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                            Math.min(SEGMENT_SIZE, indexOffset - start));
+                    }
+                    segments = mapped;
+                    index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) capacity * 16);
+                }
+            }
+            
+            String get(String key) {
+                MappedByteBuffer index = this.index;
+                MappedByteBuffer[] segments = this.segments;
+                if (index == null || segments == null) return null;
+                long hash = OffHeapStore.hash(key);
+                byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                for (int slot = (int) (hash ^ (hash >>> 32)) & (capacity - 1); ;
+                        slot = (slot + 1) & (capacity - 1)) {
+                    long h = index.getLong(slot * 16);
+                    if (h == 0) return null;
+                    if (h != hash) continue;
+                    long offset = index.getLong(slot * 16 + 8);
+                    ByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)];
+                    int position = (int) (offset % SEGMENT_SIZE);
+                    if (segment.getInt(position) == keyBytes.length && keyMatches(segment, position + 8, keyBytes)) {
+                        byte[] value = new byte[segment.getInt(position + 4)];
+                        segment.get(position + 8 + keyBytes.length, value);
+                        return new String(value, StandardCharsets.UTF_8);
+                    }
+                }
+            }
+            
+            // Sequential scan in write order (hottest entries were written first); stops
+            // after the header's record count even if an end marker is missing
+            void forEach(BiConsumer<String, String> action) {
+                MappedByteBuffer[] segments = this.segments;
+                if (segments == null) return;
+                long remaining = count;
+                for (int i = 0; i < segments.length && remaining > 0; i++) {
+                    ByteBuffer segment = segments[i];
+                    int position = i == 0 ? HEADER_SIZE : 0;
+                    while (remaining > 0 && position + 4 <= segment.limit()) {
+                        int keyLength = segment.getInt(position);
+                        if (keyLength < 0 || position + 8 > segment.limit()) break;
+                        int valueLength = segment.getInt(position + 4);
+                        byte[] key = new byte[keyLength];
+                        byte[] value = new byte[valueLength];
+                        segment.get(position + 8, key);
+                        segment.get(position + 8 + keyLength, value);
+                        action.accept(new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8));
+                        position += 8 + keyLength + valueLength;
+                        remaining--;
+                    }
+                }
+            }
+            
+            long size() {
+                return count;
+            }
+            
+            @Override
+            public void close() {
+                segments = null;
+                index = null;
+            }
+            
+            private static boolean keyMatches(ByteBuffer segment, int position, byte[] key) {
+                for (int i = 0; i < key.length; i++) {
+                    if (segment.get(position + i) != key[i]) return false;
+                }
+                return true;
+            }
+        }
+    }
+    
+    // ============================================
+    // 10. Batched Event Bus
+    // ============================================
+    // Publishers claim slots in a lock-free multi-producer ring; one dispatcher
+    // thread drains it in batches and hands each batch to every listener.
+    // The listener list is owned by the dispatcher: add/remove just post a
+    // command it applies between batches, so there is no copy-on-write array.
+    // A listener whose batches keep taking longer than slowThreshold is moved
+    // to its own bounded queue and thread, so it can only fall behind itself.
+    static class EventBus<E> implements AutoCloseable {
+        private static final int SLOW_BATCHES_BEFORE_ISOLATION = 3;
+        private final AtomicReferenceArray<E> ring;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();  // Next sequence to claim
+        private final AtomicLong head = new AtomicLong();  // Next sequence to dispatch (dispatcher writes)
+        private final int maxBatch;
+        private final long slowThresholdNanos;
+        private final int isolatedQueueCapacity;
+        
+        private final ConcurrentLinkedQueue<Runnable> registrations = new ConcurrentLinkedQueue<>();
+        private final List<Subscription<E>> subscriptions = new ArrayList<>(); // Dispatcher thread only
+        private final LongAdder published = new LongAdder();
+        private final Thread dispatcher;
+        private volatile boolean running = true;
+        
+        public EventBus(int ringCapacity, int maxBatch, long slowThresholdNanos, int isolatedQueueCapacity) {
+            int capacity = Integer.highestOneBit(Math.max(2, ringCapacity) - 1) << 1;
+            this.ring = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+            this.maxBatch = maxBatch;
+            this.slowThresholdNanos = slowThresholdNanos;
+            this.isolatedQueueCapacity = isolatedQueueCapacity;
+            this.dispatcher = new Thread(this::dispatchLoop, "EventBus-Dispatcher");
+            this.dispatcher.setDaemon(true);
+            this.dispatcher.start();
+        }
+        
+        static final class Subscription<E> {
+            final String name;
+            final Consumer<List<E>> listener;
+            final AtomicLong delivered = new AtomicLong();
+            final AtomicLong dropped = new AtomicLong();
+            volatile long lastSequence;              // Sequence of the last event handed to this listener
+            volatile boolean removed;
+            int slowStreak;                          // Dispatcher thread only
+            // Set once the listener has been judged slow
+            volatile ArrayBlockingQueue<E> isolatedQueue;
+            Thread isolatedWorker;
+            
+            Subscription(String name, Consumer<List<E>> listener) {
+                this.name = name;
+                this.listener = listener;
+            }
+            
+            public boolean isIsolated() {
+                return isolatedQueue != null;
+            }
+        }
+        
+        // Blocks (spinning, then yielding) only while the ring is full
+        public void publish(E event) {
+            if (event == null) throw new NullPointerException("event");
+            if (!running) throw new IllegalStateException("EventBus is closed");
+            while (true) {
+                long t = tail.get();
+                if (t - head.get() >= ring.length()) {
+                    Thread.yield(); // Full: wait for the dispatcher
+                    continue;
+                }
+                if (tail.compareAndSet(t, t + 1)) {
+                    ring.lazySet((int) t & mask, event);
+                    published.increment();
+                    return;
+                }
+            }
+        }
+        
+        // The list handed to the listener is reused for the next batch: it is only
+        // valid during the call, so copy it to keep events around
+        public Subscription<E> addListener(String name, Consumer<List<E>> batchListener) {
+            Subscription<E> subscription = new Subscription<>(name, batchListener);
+            subscription.lastSequence = tail.get();
+            registrations.add(() -> subscriptions.add(subscription));
+            return subscription;
+        }
+        
+        // An isolated listener's worker is stopped too; events still queued for it are discarded
+        public void removeListener(Subscription<E> subscription) {
+            subscription.removed = true;
+            registrations.add(() -> {
+                subscriptions.remove(subscription);
+                if (subscription.isolatedWorker != null) subscription.isolatedWorker.interrupt();
+            });
+        }
+        
+        public long publishedCount() {
+            return published.sum();
+        }
+        
+        // How many published events this listener has not yet processed
+        public long lag(Subscription<E> subscription) {
+            return Math.max(0, tail.get() - subscription.lastSequence)
+                + (subscription.isIsolated() ? subscription.isolatedQueue.size() : 0);
+        }
+        
+        public void printMetrics(long elapsedNanos) {
+            long total = published.sum();
+            System.out.println(String.format("  Published: %d events (%.0f events/ms)",
+                total, total / Math.max(1.0, elapsedNanos / 1_000_000.0)));
+            for (Subscription<E> s : snapshotSubscriptions()) {
+                System.out.println(String.format("  %-10s delivered=%d lag=%d dropped=%d%s", s.name,
+                    s.delivered.get(), lag(s), s.dropped.get(), s.isIsolated() ? " (isolated: slow)" : ""));
+            }
+        }
+        
+        // Drains the ring, then stops the dispatcher and isolated workers. If the
+        // caller is interrupted it stops waiting (the threads are daemons).
+        @Override
+        public void close() {
+            running = false;
+            try {
+                dispatcher.join();
+                applyRegistrations(); // Any that arrived after the dispatcher's last pass
+                for (Subscription<E> s : subscriptions) {
+                    if (s.isolatedWorker != null) {
+                        s.isolatedWorker.interrupt();
+                        s.isolatedWorker.join();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        private void applyRegistrations() {
+            Runnable registration;
+            while ((registration = registrations.poll()) != null) {
+                synchronized (subscriptions) {
+                    registration.run();
+                }
+            }
+        }
+        
+        private List<Subscription<E>> snapshotSubscriptions() {
+            // Metrics only: a racy copy is fine
+            synchronized (subscriptions) {
+                return new ArrayList<>(subscriptions);
+            }
+        }
+        
+        private void dispatchLoop() {
+            List<E> batch = new ArrayList<>(maxBatch);
+            while (true) {
+                applyRegistrations();
+                long h = head.get();
+                while (batch.size() < maxBatch) {
+                    int index = (int) (h + batch.size()) & mask;
+                    E event = ring.get(index);
+                    if (event == null) break; // Not published yet
+                    ring.lazySet(index, null);
+                    batch.add(event);
+                }
+                if (batch.isEmpty()) {
+                    if (!running && tail.get() == h) return;
+                    LockSupport.parkNanos(50_000);
+                    continue;
+                }
+                long lastSequence = h + batch.size();
+                head.lazySet(lastSequence);
+                List<E> view = Collections.unmodifiableList(batch);
+                for (Subscription<E> s : subscriptions) {
+                    if (!s.removed) deliver(s, view, lastSequence);
+                }
+                batch.clear();
+            }
+        }
+        
+        private void deliver(Subscription<E> s, List<E> batch, long lastSequence) {
+            ArrayBlockingQueue<E> queue = s.isolatedQueue;
+            if (queue != null) {
+                for (E event : batch) {
+                    if (!queue.offer(event)) s.dropped.incrementAndGet(); // Full: this listener alone loses
+                }
+                s.lastSequence = lastSequence;
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                s.listener.accept(batch);
+            } catch (RuntimeException e) {
+                System.out.println("  [EventBus] Listener " + s.name + " failed: " + e);
+            }
+            s.delivered.addAndGet(batch.size());
+            s.lastSequence = lastSequence;
+            // A few slow batches in a row, not one GC pause, marks a listener as slow
+            s.slowStreak = System.nanoTime() - start > slowThresholdNanos ? s.slowStreak + 1 : 0;
+            if (s.slowStreak >= SLOW_BATCHES_BEFORE_ISOLATION) {
+                isolate(s);
+            }
+        }
+        
+        private void isolate(Subscription<E> s) {
+            ArrayBlockingQueue<E> queue = new ArrayBlockingQueue<>(isolatedQueueCapacity);
+            s.isolatedWorker = new Thread(() -> {
+                List<E> batch = new ArrayList<>(maxBatch);
+                try {
+                    while (!s.removed) {
+                        batch.add(queue.take());
+                        queue.drainTo(batch, maxBatch - 1);
+                        deliverIsolated(s, batch);
+                    }
+                } catch (InterruptedException e) {
+                    // Closing: hand over whatever is still queued, then stop. Removed: just stop.
+                    if (s.removed) return;
+                    queue.drainTo(batch);
+                    if (!batch.isEmpty()) deliverIsolated(s, batch);
+                }
+            }, "EventBus-" + s.name);
+            s.isolatedWorker.setDaemon(true);
+            s.isolatedQueue = queue;
+            s.isolatedWorker.start();
+        }
+        
+        private void deliverIsolated(Subscription<E> s, List<E> batch) {
+            try {
+                s.listener.accept(Collections.unmodifiableList(batch));
+            } catch (RuntimeException e) {
+                System.out.println("  [EventBus] Listener " + s.name + " failed: " + e);
+            }
+            s.delivered.addAndGet(batch.size());
+            batch.clear();
+        }
+    }
+    
+    // ============================================
+    // 11. Ring Buffer (sequence-numbered slots)
+    // ============================================
+    // A power-of-two array allocated once; every slot carries a sequence number
+    // that says whose turn it is. A producer may fill slot i when its sequence
+    // equals the producer cursor, a consumer may empty it when the sequence is
+    // cursor + 1, and emptying hands it to the producer one lap later. Nothing
+    // is allocated per put, and producers and consumers never share a lock.
+    static class RingBuffer<E> {
+        enum ProducerType { SINGLE, MULTI }
+        
+        // What a thread does while the ring is full (producer) or empty (consumer)
+        enum WaitStrategy { BUSY_SPIN, YIELD, PARK, BLOCK }
+        
+        private static final int SPINS_BEFORE_BACKOFF = 100;
+        private final Object[] slots;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final ProducerType producerType;
+        private final WaitStrategy waitStrategy;
+        private final Cursor tail = new Cursor(); // Next sequence to fill
+        private final Cursor head = new Cursor(); // Next sequence to empty
+        
+        // BLOCK only
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final AtomicInteger waiters = new AtomicInteger();
+        
+        // Padding lives in super/subclasses because the JVM may reorder fields
+        // within one class; this keeps value alone on its cache line.
+        static class CursorLhs { long p0, p1, p2, p3, p4, p5, p6, p7; }
+        static class CursorValue extends CursorLhs { volatile long value; }
+        static final class Cursor extends CursorValue {
+            private static final AtomicLongFieldUpdater<CursorValue> VALUE =
+                AtomicLongFieldUpdater.newUpdater(CursorValue.class, "value");
+            long q0, q1, q2, q3, q4, q5, q6, q7;
+            
+            long get() { return value; }
+            void lazySet(long v) { VALUE.lazySet(this, v); }
+            boolean compareAndSet(long expect, long update) { return VALUE.compareAndSet(this, expect, update); }
+        }
+        
+        public RingBuffer(int capacity, ProducerType producerType, WaitStrategy waitStrategy) {
+            int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+            this.slots = new Object[size];
+            this.sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+            this.mask = size - 1;
+            this.producerType = producerType;
+            this.waitStrategy = waitStrategy;
+        }
+        
+        // Returns false at once if the ring is full
+        public boolean offer(E item) {
+            if (item == null) throw new NullPointerException("item");
+            while (true) {
+                long t = tail.get();
+                int index = (int) t & mask;
+                long seq = sequences.get(index);
+                if (seq < t) return false; // Slot still holds last lap's item
+                if (seq > t) continue;     // Another producer claimed t; re-read tail
+                if (producerType == ProducerType.SINGLE) {
+                    tail.lazySet(t + 1);
+                } else if (!tail.compareAndSet(t, t + 1)) {
+                    continue;
+                }
+                slots[index] = item;
+                sequences.lazySet(index, t + 1); // Publishes the slot write
+                signal();
+                return true;
+            }
+        }
+        
+        public void put(E item) throws InterruptedException {
+            for (int attempt = 0; !offer(item); attempt++) {
+                idle(attempt);
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        public E poll() {
+            while (true) {
+                long h = head.get();
+                int index = (int) h & mask;
+                long seq = sequences.get(index);
+                if (seq < h + 1) return null; // Not filled yet
+                if (seq > h + 1 || !head.compareAndSet(h, h + 1)) continue;
+                E item = (E) slots[index];
+                slots[index] = null;
+                sequences.lazySet(index, h + slots.length);
+                signal();
+                return item;
+            }
+        }
+        
+        public E take() throws InterruptedException {
+            E item;
+            for (int attempt = 0; (item = poll()) == null; attempt++) {
+                idle(attempt);
+            }
+            return item;
+        }
+        
+        // Waits for at least one item, then moves up to max contiguous items
+        // into batch with a single claim on the consumer cursor.
+        public int drainTo(Collection<? super E> batch, int max) throws InterruptedException {
+            int drained;
+            for (int attempt = 0; (drained = drainAvailable(batch, max)) == 0; attempt++) {
+                idle(attempt);
+            }
+            return drained;
+        }
+        
+        // Non-blocking: 0 if nothing was ready
+        @SuppressWarnings("unchecked")
+        public int drainAvailable(Collection<? super E> batch, int max) {
+            while (true) {
+                long h = head.get();
+                int ready = 0;
+                while (ready < max && sequences.get((int) (h + ready) & mask) == h + ready + 1) {
+                    ready++;
+                }
+                if (ready == 0) {
+                    if (head.get() == h) return 0;
+                    continue; // Another consumer moved on; look again
+                }
+                // Claimed slots stay filled until we release them below
+                if (!head.compareAndSet(h, h + ready)) continue;
+                for (long s = h; s < h + ready; s++) {
+                    int index = (int) s & mask;
+                    batch.add((E) slots[index]);
+                    slots[index] = null;
+                    sequences.lazySet(index, s + slots.length);
+                }
+                signal();
+                return ready;
+            }
+        }
+        
+        public int size() {
+            return (int) Math.max(0, Math.min(slots.length, tail.get() - head.get()));
+        }
+        
+        public int capacity() {
+            return slots.length;
+        }
+        
+        private void idle(int attempt) throws InterruptedException {
+            if (Thread.interrupted()) throw new InterruptedException();
+            if (waitStrategy == WaitStrategy.BUSY_SPIN || attempt < SPINS_BEFORE_BACKOFF) {
+                Thread.onSpinWait();
+                return;
+            }
+            switch (waitStrategy) {
+                case YIELD:
+                    Thread.yield();
+                    break;
+                case PARK:
+                    LockSupport.parkNanos(1_000);
+                    break;
+                case BLOCK:
+                    lock.lock();
+                    try {
+                        waiters.incrementAndGet();
+                        // Timed: a signal sent just before we registered is not lost for long
+                        changed.await(1, TimeUnit.MILLISECONDS);
+                    } finally {
+                        waiters.decrementAndGet();
+                        lock.unlock();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        private void signal() {
+            if (waitStrategy == WaitStrategy.BLOCK && waiters.get() > 0) {
+                lock.lock();
+                try {
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+    
+    // ============================================
+    // 12. Work-Stealing Scheduler
+    // ============================================
+    // Every worker owns a Chase-Lev deque: it pushes and pops at the bottom
+    // (LIFO, cache-warm), while idle workers steal from the top (FIFO, oldest
+    // and usually largest work). Tasks submitted from outside land in a
+    // worker's RingBuffer inbox instead of one shared queue, so consumers only
+    // meet when someone steals. Out of work, a worker spins, then parks until
+    // a submitter unparks it.
+    static class WorkStealingScheduler<T> {
+        private static final int SPINS_BEFORE_PARK = 1_000;
+        private static final int INBOX_BATCH = 64;
+        private final Worker<T>[] workers;
+        private final ThreadLocal<Worker<T>> currentWorker = new ThreadLocal<>();
+        private final AtomicInteger parkedCount = new AtomicInteger();
+        private final LongAdder externalSteals = new LongAdder();
+        private volatile boolean running;
+        
+        static final class Worker<T> {
+            final int index;
+            final WorkDeque<T> deque = new WorkDeque<>(64);
+            final RingBuffer<T> inbox;
+            final AtomicBoolean parked = new AtomicBoolean();
+            volatile Thread thread;
+            volatile long executed;  // Written by the owning thread only
+            volatile long steals;    // Written by the owning thread only
+            
+            Worker(int index, int inboxCapacity) {
+                this.index = index;
+                this.inbox = new RingBuffer<>(inboxCapacity, RingBuffer.ProducerType.MULTI, RingBuffer.WaitStrategy.YIELD);
+            }
+            
+            int depth() {
+                return deque.size() + inbox.size();
+            }
+        }
+        
+        public WorkStealingScheduler(int workerCount) {
+            @SuppressWarnings("unchecked")
+            Worker<T>[] array = (Worker<T>[]) new Worker<?>[workerCount];
+            this.workers = array;
+            for (int i = 0; i < workerCount; i++) {
+                workers[i] = new Worker<>(i, 1024);
+            }
+        }
+        
+        // Starts one thread per worker, each running tasks through handler
+        public void start(Consumer<? super T> handler) {
+            running = true;
+            for (Worker<T> w : workers) {
+                w.thread = new Thread(() -> {
+                    currentWorker.set(w);
+                    T task;
+                    while ((task = take(w)) != null) {
+                        try {
+                            handler.accept(task);
+                        } catch (RuntimeException e) {
+                            System.out.println("  [Scheduler] Task failed: " + e);
+                        }
+                        w.executed++;
+                    }
+                }, "Worker-" + w.index);
+                w.thread.start();
+            }
+        }
+        
+        // Workers finish what is queued, then exit
+        public void shutdown() throws InterruptedException {
+            running = false;
+            for (Worker<T> w : workers) {
+                if (w.thread != null) {
+                    LockSupport.unpark(w.thread);
+                    w.thread.join();
+                }
+            }
+        }
+        
+        // From a worker: push onto its own deque. From anywhere else: a random inbox.
+        public void submit(T task) {
+            Worker<T> self = currentWorker.get();
+            if (self != null) {
+                self.deque.push(task);
+            } else {
+                int start = ThreadLocalRandom.current().nextInt(workers.length);
+                boolean queued = false;
+                for (int i = 0; i < workers.length && !queued; i++) {
+                    queued = workers[(start + i) % workers.length].inbox.offer(task);
+                }
+                if (!queued) {
+                    // Every inbox full: wait on the first one
+                    try {
+                        workers[start].inbox.put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while submitting", e);
+                    }
+                }
+            }
+            if (parkedCount.get() > 0) wakeOne();
+        }
+        
+        // Non-blocking: own deque, own inbox, then steal; null if no work anywhere
+        public T poll() {
+            Worker<T> self = currentWorker.get();
+            if (self != null) {
+                T task = self.deque.pop();
+                if (task != null) return task;
+                task = self.inbox.poll();
+                if (task != null) {
+                    // Move the rest of the inbox onto the deque so it can be stolen
+                    List<T> batch = new ArrayList<>(INBOX_BATCH);
+                    self.inbox.drainAvailable(batch, INBOX_BATCH);
+                    for (T t : batch) self.deque.push(t);
+                    return task;
+                }
+            }
+            T stolen = steal(self);
+            if (stolen != null) {
+                if (self != null) self.steals++;
+                else externalSteals.increment();
+            }
+            return stolen;
+        }
+        
+        // Compatibility with TaskQueue
+        public void addTask(T task) {
+            submit(task);
+            System.out.println("  Added task: " + task);
+        }
+        
+        public T pollTask() {
+            T task = poll();
+            if (task != null) {
+                System.out.println("  Polled task: " + task);
+            }
+            return task;
+        }
+        
+        public boolean isEmpty() {
+            for (Worker<T> w : workers) {
+                if (w.depth() > 0) return false;
+            }
+            return true;
         }
         
-        // Atomic operation: only put if absent
-        public String putIfAbsent(String key, String value) {
-            String existing = cache.putIfAbsent(key, value);
-            if (existing == null) {
-                System.out.println("  Added: " + key + " = " + value);
-                return value;
-            } else {
-                System.out.println("  Key exists: " + key + " (kept old value: " + existing + ")");
-                return existing;
+        public long stealCount() {
+            long total = externalSteals.sum();
+            for (Worker<T> w : workers) total += w.steals;
+            return total;
+        }
+        
+        public int[] queueDepths() {
+            int[] depths = new int[workers.length];
+            for (int i = 0; i < workers.length; i++) {
+                depths[i] = workers[i].depth();
             }
+            return depths;
         }
         
-        // Atomic compute operations
-        public void incrementCounter(String key) {
-            cache.compute(key, (k, v) -> {
-                int count = (v == null) ? 1 : Integer.parseInt(v) + 1;
-                return String.valueOf(count);
-            });
+        public void printStats() {
+            for (Worker<T> w : workers) {
+                System.out.println(String.format("  Worker-%d: executed=%d steals=%d depth=%d",
+                    w.index, w.executed, w.steals, w.depth()));
+            }
+            System.out.println("  Total steals: " + stealCount());
         }
         
-        public void printCache() {
-            System.out.println("  Cache contents: " + cache);
+        // Randomized victim: start anywhere, try each other worker once
+        private T steal(Worker<T> self) {
+            int start = ThreadLocalRandom.current().nextInt(workers.length);
+            for (int i = 0; i < workers.length; i++) {
+                Worker<T> victim = workers[(start + i) % workers.length];
+                if (victim == self) continue;
+                T task = victim.deque.steal();
+                if (task == null) task = victim.inbox.poll();
+                if (task != null) return task;
+            }
+            return null;
+        }
+        
+        // Spin, then park; null once shut down with no work left
+        private T take(Worker<T> self) {
+            int spins = 0;
+            while (true) {
+                T task = poll();
+                if (task != null) return task;
+                if (!running) return null;
+                if (++spins < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                self.parked.set(true);
+                parkedCount.incrementAndGet();
+                // Re-check after advertising: a submit that missed parkedCount was already visible
+                task = poll();
+                if (task == null && running) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+                }
+                if (self.parked.getAndSet(false)) parkedCount.decrementAndGet();
+                if (task != null) return task;
+                spins = 0;
+            }
+        }
+        
+        private void wakeOne() {
+            for (Worker<T> w : workers) {
+                if (w.parked.compareAndSet(true, false)) {
+                    parkedCount.decrementAndGet();
+                    LockSupport.unpark(w.thread);
+                    return;
+                }
+            }
+        }
+        
+        // Chase-Lev deque: push/pop by the owner only, steal by anyone
+        static final class WorkDeque<T> {
+            private final AtomicLong top = new AtomicLong();
+            private volatile long bottom;
+            private volatile AtomicReferenceArray<T> array;
+            
+            WorkDeque(int initialCapacity) {
+                this.array = new AtomicReferenceArray<>(Integer.highestOneBit(Math.max(2, initialCapacity) - 1) << 1);
+            }
+            
+            void push(T task) {
+                long b = bottom;
+                long t = top.get();
+                AtomicReferenceArray<T> a = array;
+                if (b - t >= a.length() - 1) {
+                    a = grow(a, t, b);
+                }
+                a.set((int) b & (a.length() - 1), task);
+                bottom = b + 1;
+            }
+            
+            T pop() {
+                long b = bottom - 1;
+                AtomicReferenceArray<T> a = array;
+                bottom = b; // Volatile write, then volatile read of top: thieves see the claim first
+                long t = top.get();
+                if (t > b) {
+                    bottom = b + 1; // Empty
+                    return null;
+                }
+                int index = (int) b & (a.length() - 1);
+                T task = a.get(index);
+                if (t == b) {
+                    // Last item: race the thieves for it
+                    if (!top.compareAndSet(t, t + 1)) task = null;
+                    bottom = b + 1;
+                }
+                // Behind top or bottom now either way, so no reader will look at it again
+                a.lazySet(index, null);
+                return task;
+            }
+            
+            T steal() {
+                long t = top.get();
+                long b = bottom;
+                if (t >= b) return null;
+                AtomicReferenceArray<T> a = array;
+                T task = a.get((int) t & (a.length() - 1));
+                return top.compareAndSet(t, t + 1) ? task : null;
+            }
+            
+            int size() {
+                return (int) Math.max(0, bottom - top.get());
+            }
+            
+            private AtomicReferenceArray<T> grow(AtomicReferenceArray<T> old, long t, long b) {
+                AtomicReferenceArray<T> a = new AtomicReferenceArray<>(old.length() << 1);
+                for (long i = t; i < b; i++) {
+                    a.set((int) i & (a.length() - 1), old.get((int) i & (old.length() - 1)));
+                }
+                array = a;
+                return a;
+            }
         }
     }
     
     // ============================================
-    // 2. CopyOnWriteArrayList Example
+    // 13. Concurrent IntIntMap (open addressing)
     // ============================================
-    static class EventListeners {
-        // Thread-safe list optimized for reads
-        private CopyOnWriteArrayList<String> listeners = new CopyOnWriteArrayList<>();
+    // Key and value are packed into one long per slot, so a slot is read and
+    // updated with a single CAS and an entry costs 8 bytes of array, not a
+    // Node plus two Integers. Linear probing; removal leaves a tombstone that
+    // only a resize clears. A resize copies the table in chunks that any
+    // thread hitting a MOVED slot claims and migrates, and it rebuilds at the
+    // same size when the table is full of tombstones rather than live keys.
+    static class IntIntMap {
+        private static final float LOAD_FACTOR = 0.5f;
+        private static final int TRANSFER_CHUNK = 1024;
+        // Slot states, by stored key: 0 empty, 1 tombstone, 2 moved; live keys are
+        // stored xor MIN_VALUE, so MIN_VALUE..MIN_VALUE+2 would collide with them.
+        private static final long EMPTY = 0L;
+        private static final long TOMBSTONE = 1L << 32;
+        private static final long MOVED = 2L << 32;
+        private static final long PRESENT = 1L << 32;
         
-        public void addListener(String listener) {
-            listeners.add(listener);
-            System.out.println("  Added listener: " + listener);
+        private final int missingValue;
+        private final AtomicReference<Table> table;
+        // Those three keys live outside the table, one PRESENT | value word each (0 = absent)
+        private final AtomicLongArray reservedKeys = new AtomicLongArray(3);
+        private final LongAdder size = new LongAdder();
+        
+        static final class Table {
+            final AtomicLongArray slots;
+            final int mask;
+            final int threshold;
+            final AtomicInteger used = new AtomicInteger();         // Live entries + tombstones
+            final AtomicReference<Table> next = new AtomicReference<>();
+            final AtomicInteger transferIndex = new AtomicInteger(); // Next chunk to claim
+            final AtomicInteger chunksDone = new AtomicInteger();
+            final int chunks;
+            
+            Table(int capacity) {
+                slots = new AtomicLongArray(capacity);
+                mask = capacity - 1;
+                threshold = (int) (capacity * LOAD_FACTOR);
+                chunks = (capacity + TRANSFER_CHUNK - 1) / TRANSFER_CHUNK;
+            }
         }
         
-        public void removeListener(String listener) {
-            listeners.remove(listener);
-            System.out.println("  Removed listener: " + listener);
+        public IntIntMap(int expectedSize, int missingValue) {
+            long capacity = Math.max(16, (long) (expectedSize / LOAD_FACTOR) + 1);
+            this.table = new AtomicReference<>(new Table((int) Math.min(1 << 30, Long.highestOneBit(capacity - 1) << 1)));
+            this.missingValue = missingValue;
         }
         
-        public void notifyListeners(String event) {
-            // Safe to iterate while other threads modify
-            for (String listener : listeners) {
-                System.out.println("  Notifying " + listener + " about: " + event);
+        // Returns missingValue for absent keys
+        public int get(int key) {
+            int reserved = reservedIndex(key);
+            if (reserved >= 0) {
+                long r = reservedKeys.get(reserved);
+                return r == 0 ? missingValue : (int) r;
             }
+            long s = find(key);
+            return s == EMPTY ? missingValue : (int) s;
         }
         
-        public int getCount() {
-            return listeners.size();
+        // Probes for the key itself, so a stored value equal to missingValue still counts
+        public boolean containsKey(int key) {
+            int reserved = reservedIndex(key);
+            if (reserved >= 0) return reservedKeys.get(reserved) != 0;
+            return find(key) != EMPTY;
         }
-    }
-    
-    // ============================================
-    // 3. BlockingQueue Example (Producer-Consumer)
-    // ============================================
-    static class ProducerConsumer {
-        private BlockingQueue<String> queue = new LinkedBlockingQueue<>(5); // Max 5 items
         
-        public void produce(String item) throws InterruptedException {
-            System.out.println("  Producer: Adding " + item + " to queue...");
-            queue.put(item); // Blocks if queue is full
-            System.out.println("  Producer: Added " + item + " (queue size: " + queue.size() + ")");
+        // The live slot holding key, or EMPTY; live slots are never EMPTY since reserved keys stay out of the table
+        private long find(int key) {
+            long stored = storedKey(key);
+            Table t = table.get();
+            int i = hash(key) & t.mask;
+            for (int probes = 0; probes <= t.mask; probes++) {
+                long s = t.slots.get(i);
+                if (s == EMPTY) return EMPTY;
+                if (s == MOVED) {
+                    t = helpTransfer(t);
+                    i = hash(key) & t.mask;
+                    probes = -1;
+                    continue;
+                }
+                if (s >>> 32 == stored) return s;
+                i = (i + 1) & t.mask;
+            }
+            return EMPTY;
         }
         
-        public String consume() throws InterruptedException {
-            System.out.println("  Consumer: Waiting for item...");
-            String item = queue.take(); // Blocks if queue is empty
-            System.out.println("  Consumer: Got " + item + " (queue size: " + queue.size() + ")");
-            return item;
+        // Returns the previous value, or missingValue if there was none
+        public int put(int key, int value) {
+            int reserved = reservedIndex(key);
+            if (reserved >= 0) {
+                long previous = reservedKeys.getAndSet(reserved, PRESENT | (value & 0xFFFFFFFFL));
+                if (previous == 0) size.increment();
+                return previous == 0 ? missingValue : (int) previous;
+            }
+            long stored = storedKey(key);
+            long entry = (stored << 32) | (value & 0xFFFFFFFFL);
+            Table t = table.get();
+            retry:
+            while (true) {
+                int i = hash(key) & t.mask;
+                for (int probes = 0; probes <= t.mask; probes++) {
+                    long s = t.slots.get(i);
+                    if (s == MOVED) {
+                        t = helpTransfer(t);
+                        continue retry;
+                    }
+                    if (s == EMPTY) {
+                        if (!t.slots.compareAndSet(i, EMPTY, entry)) {
+                            probes--;
+                            continue; // Lost the slot: look at it again
+                        }
+                        size.increment();
+                        if (t.used.incrementAndGet() > t.threshold) resize(t);
+                        return missingValue;
+                    }
+                    if (s >>> 32 == stored) {
+                        if (t.slots.compareAndSet(i, s, entry)) return (int) s;
+                        probes--;
+                        continue; // Value changed, or the slot was removed/moved
+                    }
+                    i = (i + 1) & t.mask; // Other key or tombstone: tombstones are never reused
+                }
+                // No empty slot left: rebuild and try again
+                t = resize(t);
+            }
         }
-    }
-    
-    // ============================================
-    // 4. ConcurrentLinkedQueue Example
-    // ============================================
-    static class TaskQueue {
-        // Lock-free, unbounded queue
-        private ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
         
-        public void addTask(String task) {
-            queue.offer(task);
-            System.out.println("  Added task: " + task);
+        // Returns the removed value, or missingValue if the key was absent
+        public int remove(int key) {
+            int reserved = reservedIndex(key);
+            if (reserved >= 0) {
+                long previous = reservedKeys.getAndSet(reserved, 0);
+                if (previous == 0) return missingValue;
+                size.decrement();
+                return (int) previous;
+            }
+            long stored = storedKey(key);
+            Table t = table.get();
+            int i = hash(key) & t.mask;
+            for (int probes = 0; probes <= t.mask; probes++) {
+                long s = t.slots.get(i);
+                if (s == EMPTY) return missingValue;
+                if (s == MOVED) {
+                    t = helpTransfer(t);
+                    i = hash(key) & t.mask;
+                    probes = -1;
+                    continue;
+                }
+                if (s >>> 32 == stored) {
+                    if (t.slots.compareAndSet(i, s, TOMBSTONE)) {
+                        size.decrement();
+                        return (int) s;
+                    }
+                    probes--;
+                    continue;
+                }
+                i = (i + 1) & t.mask;
+            }
+            return missingValue;
         }
         
-        public String pollTask() {
-            String task = queue.poll();
-            if (task != null) {
-                System.out.println("  Polled task: " + task);
+        public int size() {
+            return (int) size.sum();
+        }
+        
+        public int capacity() {
+            return table.get().slots.length();
+        }
+        
+        // Installs the next table (twice as large, or the same size when most
+        // used slots are tombstones), helps move everything, and returns it.
+        private Table resize(Table t) {
+            if (t.next.get() == null) {
+                long live = size.sum();
+                int capacity = t.slots.length();
+                if (live >= capacity * LOAD_FACTOR / 2 && capacity < (1 << 30)) capacity <<= 1;
+                t.next.compareAndSet(null, new Table(capacity));
             }
-            return task;
+            return helpTransfer(t);
         }
         
-        public boolean isEmpty() {
-            return queue.isEmpty();
+        // Claims and migrates chunks until none are left, waits for other
+        // helpers to finish theirs, then publishes the new table.
+        private Table helpTransfer(Table t) {
+            Table next;
+            while ((next = t.next.get()) == null) Thread.onSpinWait(); // MOVED seen before next was read
+            int chunk;
+            while ((chunk = t.transferIndex.getAndIncrement()) < t.chunks) {
+                int end = Math.min(t.slots.length(), (chunk + 1) * TRANSFER_CHUNK);
+                for (int i = chunk * TRANSFER_CHUNK; i < end; i++) {
+                    long s;
+                    do {
+                        s = t.slots.get(i);
+                    } while (!t.slots.compareAndSet(i, s, MOVED));
+                    if (s != EMPTY && s != TOMBSTONE) transferEntry(next, s);
+                }
+                t.chunksDone.incrementAndGet();
+            }
+            while (t.chunksDone.get() < t.chunks) Thread.yield();
+            table.compareAndSet(t, next);
+            return next;
+        }
+        
+        // Keys are unique and nobody else writes to next until the move ends,
+        // so an empty slot is all we need to find
+        private static void transferEntry(Table next, long entry) {
+            int i = hash((int) (entry >>> 32) ^ Integer.MIN_VALUE) & next.mask;
+            while (!next.slots.compareAndSet(i, EMPTY, entry)) {
+                i = (i + 1) & next.mask;
+            }
+            next.used.incrementAndGet();
+        }
+        
+        private static long storedKey(int key) {
+            return (key ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+        }
+        
+        // 0..2 for the keys kept in reservedKeys, else -1
+        private static int reservedIndex(int key) {
+            long stored = storedKey(key);
+            return stored <= 2 ? (int) stored : -1;
+        }
+        
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
         }
     }
     
-    // ============================================
-    // 5. Regular HashMap vs ConcurrentHashMap
-    // ============================================
-    static class HashMapComparison {
-        public static void testRegularHashMap() throws InterruptedException {
-            Map<Integer, Integer> map = new HashMap<>();
-            
-            Thread[] threads = new Thread[10];
-            for (int i = 0; i < 10; i++) {
-                final int threadId = i;
-                threads[i] = new Thread(() -> {
-                    for (int j = 0; j < 100; j++) {
-                        map.put(threadId * 100 + j, j);
+    // Starts numThreads copies of task together; returns nanos until the last one finishes
+    private static long timeThreads(int numThreads, Runnable task) throws InterruptedException {
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread(task);
+        }
+        long start = System.nanoTime();
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        return System.nanoTime() - start;
+    }
+    
+    interface Handoff {
+        void put(Object item) throws InterruptedException;
+        int drainTo(List<Object> batch, int max) throws InterruptedException;
+    }
+    
+    // Pushes items through a queue with P producers and C batch-draining
+    // consumers; returns nanos until the last item was consumed.
+    private static long timeHandoff(int producers, int consumers, int items, Handoff queue) throws InterruptedException {
+        Object poison = new Object();
+        Integer[] payload = new Integer[1024];
+        for (int i = 0; i < payload.length; i++) payload[i] = i;
+        LongAdder consumed = new LongAdder();
+        Thread[] threads = new Thread[producers + consumers];
+        for (int i = 0; i < consumers; i++) {
+            threads[producers + i] = new Thread(() -> {
+                List<Object> batch = new ArrayList<>(256);
+                try {
+                    while (true) {
+                        queue.drainTo(batch, 256);
+                        for (Object item : batch) {
+                            if (item == poison) return;
+                            consumed.increment();
+                        }
+                        batch.clear();
                     }
-                });
-            }
-            
-            for (Thread t : threads) t.start();
-            for (Thread t : threads) t.join();
-            
-            System.out.println("  Regular HashMap size: " + map.size() + " (might be wrong or crash!)");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
         }
-        
-        public static void testConcurrentHashMap() throws InterruptedException {
-            ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
-            
-            Thread[] threads = new Thread[10];
-            for (int i = 0; i < 10; i++) {
-                final int threadId = i;
-                threads[i] = new Thread(() -> {
-                    for (int j = 0; j < 100; j++) {
-                        map.put(threadId * 100 + j, j);
+        for (int i = 0; i < producers; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < items / producers; j++) {
+                        queue.put(payload[j & (payload.length - 1)]);
                     }
-                });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread t : threads) t.start();
+        for (int i = 0; i < producers; i++) threads[i].join();
+        while (consumed.sum() < (long) items / producers * producers) Thread.yield();
+        long elapsed = System.nanoTime() - start;
+        // One consumer may swallow several pills in a batch, so keep feeding them
+        for (int i = producers; i < threads.length; i++) {
+            while (threads[i].isAlive()) {
+                queue.put(poison);
+                threads[i].join(1);
             }
-            
-            for (Thread t : threads) t.start();
-            for (Thread t : threads) t.join();
-            
-            System.out.println("  ConcurrentHashMap size: " + map.size() + " ✅ (always correct!)");
         }
+        return elapsed;
     }
     
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws Exception {
         System.out.println("=== Concurrent Collections Demo ===\n");
         
         // ============================================
@@ -192,7 +2655,7 @@ public class ConcurrentCollectionsDemo {
         for (Thread t : counterThreads) t.start();
         for (Thread t : counterThreads) t.join();
         
-        System.out.println("  Total visits: " + cache.get("visits"));
+        System.out.println("  Total visits: " + cache.getCounter("visits"));
         System.out.println();
         
         // ============================================
@@ -319,6 +2782,288 @@ public class ConcurrentCollectionsDemo {
         
         System.out.println("\nTesting ConcurrentHashMap (thread-safe):");
         HashMapComparison.testConcurrentHashMap();
+        
+        System.out.println("\nHashMap vs ConcurrentHashMap vs IntIntMap (4 threads for the concurrent maps):");
+        HashMapComparison.compareAtScale(new int[] { 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000 }, 4);
+        System.out.println();
+        
+        // ============================================
+        // Demo 6: Bounded Cache (W-TinyLFU)
+        // ============================================
+        System.out.println("--- 6. Bounded Cache (W-TinyLFU eviction) ---");
+        UserCache boundedCache = new UserCache(1_000);
+        
+        // Skewed traffic over 100k users: a few are hot, most are rare
+        Thread[] cacheThreads = new Thread[4];
+        for (int i = 0; i < cacheThreads.length; i++) {
+            cacheThreads[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int j = 0; j < 100_000; j++) {
+                    double r = random.nextDouble();
+                    String user = "user" + (int) (r * r * r * 100_000);
+                    boundedCache.getOrLoad(user, u -> "profile-" + u);
+                }
+            });
+        }
+        for (Thread t : cacheThreads) t.start();
+        for (Thread t : cacheThreads) t.join();
+        boundedCache.cleanUp();
+        boundedCache.printStats();
+        
+        // A one-off scan of cold keys should not flush the hot set
+        for (int j = 0; j < 5_000; j++) {
+            boundedCache.getOrLoad("scan" + j, k -> "cold");
+        }
+        boundedCache.cleanUp();
+        int hotKept = 0;
+        for (int j = 0; j < 100; j++) {
+            if (boundedCache.contains("user" + j)) hotKept++;
+        }
+        System.out.println("  After a 5,000-key scan, hottest 100 users still cached: " + hotKept);
+        boundedCache.printStats();
+        System.out.println();
+        
+        // ============================================
+        // Demo 7: Primitive Counter Map vs compute()
+        // ============================================
+        System.out.println("--- 7. Counter Map vs ConcurrentHashMap.compute ---");
+        String[] endpoints = new String[100];
+        for (int i = 0; i < endpoints.length; i++) {
+            endpoints[i] = "/api/endpoint/" + i;
+        }
+        int counterThreads2 = 4;
+        int incrementsPerThread = 500_000;
+        
+        // The old UserCache.incrementCounter: parse + format a String per hit
+        ConcurrentHashMap<String, String> stringCounters = new ConcurrentHashMap<>();
+        Runnable computeWork = () -> {
+            for (int j = 0; j < incrementsPerThread; j++) {
+                stringCounters.compute(endpoints[j % endpoints.length], (k, v) -> {
+                    int count = (v == null) ? 1 : Integer.parseInt(v) + 1;
+                    return String.valueOf(count);
+                });
+            }
+        };
+        ConcurrentCounterMap primitiveCounters = new ConcurrentCounterMap();
+        Runnable counterWork = () -> {
+            for (int j = 0; j < incrementsPerThread; j++) {
+                primitiveCounters.incrementAndGet(endpoints[j % endpoints.length]);
+            }
+        };
+        
+        long computeTime = timeThreads(counterThreads2, computeWork);
+        long counterTime = timeThreads(counterThreads2, counterWork);
+        long computeTotal = 0, counterTotal = 0;
+        for (String value : stringCounters.values()) computeTotal += Integer.parseInt(value);
+        for (Iterator<ConcurrentCounterMap.CounterEntry> it = primitiveCounters.snapshotIterator(); it.hasNext(); ) {
+            counterTotal += it.next().value;
+        }
+        System.out.println("  compute() + String parsing: " + computeTime / 1_000_000 + "ms (total " + computeTotal + ")");
+        System.out.println("  ConcurrentCounterMap:       " + counterTime / 1_000_000 + "ms (total " + counterTotal + ")");
+        
+        // Garbage per increment, measured on this thread
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(tid);
+        computeWork.run();
+        long computeBytes = threadBean.getThreadAllocatedBytes(tid) - before;
+        before = threadBean.getThreadAllocatedBytes(tid);
+        counterWork.run();
+        long counterBytes = threadBean.getThreadAllocatedBytes(tid) - before;
+        System.out.println(String.format("  Allocated per increment: compute() %.1f bytes, counter map %.1f bytes",
+            (double) computeBytes / incrementsPerThread, (double) counterBytes / incrementsPerThread));
+        System.out.println();
+        
+        // ============================================
+        // Demo 8: Off-Heap Tier
+        // ============================================
+        System.out.println("--- 8. Off-Heap Tier (direct memory slabs) ---");
+        UserCache tieredCache = UserCache.withOffHeapTier(1_000, 64L << 20);
+        for (int j = 0; j < 50_000; j++) {
+            tieredCache.getOrLoad("user" + j, u -> "profile-of-" + u + "-with-some-padding-bytes");
+        }
+        tieredCache.cleanUp();
+        tieredCache.printStats();
+        
+        // Cold users come back from direct memory; the second read promotes them
+        int verified = 0;
+        for (int j = 0; j < 2_000; j++) {
+            String user = "user" + (j * 17 % 50_000);
+            String expectedProfile = "profile-of-" + user + "-with-some-padding-bytes";
+            if (expectedProfile.equals(tieredCache.get(user)) && expectedProfile.equals(tieredCache.get(user))) {
+                verified++;
+            }
+        }
+        tieredCache.cleanUp();
+        System.out.println("  Verified " + verified + "/2000 reads served from either tier");
+        tieredCache.printStats();
+        System.out.println();
+        
+        // ============================================
+        // Demo 9: Snapshot + Warm Restart
+        // ============================================
+        System.out.println("--- 9. Memory-Mapped Snapshot & Warm Restart ---");
+        Path snapshotFile = Files.createTempFile("usercache", ".snapshot");
+        try {
+            UserCache running = UserCache.withOffHeapTier(1_000, 16L << 20);
+            for (int j = 0; j < 20_000; j++) {
+                running.getOrLoad("user" + j, u -> "profile-" + u);
+            }
+            running.cleanUp();
+            
+            // Writers keep going while the snapshot is taken
+            AtomicBoolean snapshotting = new AtomicBoolean(true);
+            AtomicLong writesDuringSnapshot = new AtomicLong();
+            Thread liveWriter = new Thread(() -> {
+                while (snapshotting.get()) {
+                    long n = writesDuringSnapshot.incrementAndGet();
+                    running.getOrLoad("late" + n, u -> "profile-" + u);
+                }
+            });
+            liveWriter.start();
+            long start = System.nanoTime();
+            long written = running.snapshotTo(snapshotFile);
+            long snapshotMillis = (System.nanoTime() - start) / 1_000_000;
+            snapshotting.set(false);
+            liveWriter.join();
+            System.out.println("  Snapshot: " + written + " entries, " + Files.size(snapshotFile) / 1024 + " KB in "
+                + snapshotMillis + "ms (" + writesDuringSnapshot.get() + " writes happened meanwhile)");
+            
+            // "Restart": a fresh cache answers from the mapped file immediately
+            UserCache restarted = UserCache.withOffHeapTier(1_000, 16L << 20);
+            Thread rehydration = restarted.warmStartFrom(snapshotFile);
+            System.out.println("  First read after restart: user12345 -> " + restarted.get("user12345"));
+            rehydration.join();
+            restarted.cleanUp();
+            int warm = 0;
+            for (int j = 0; j < 20_000; j += 100) {
+                if (("profile-user" + j).equals(restarted.get("user" + j))) warm++;
+            }
+            System.out.println("  After rehydration: " + warm + "/200 sampled users warm");
+            restarted.printStats();
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+        System.out.println();
+        
+        // ============================================
+        // Demo 10: Batched Event Bus
+        // ============================================
+        System.out.println("--- 10. Batched Event Bus (slow listener isolation) ---");
+        LongAdder auditSeen = new LongAdder();
+        LongAdder metricsSeen = new LongAdder();
+        long eventsStart = System.nanoTime();
+        try (EventBus<String> bus = new EventBus<>(8192, 256, TimeUnit.MILLISECONDS.toNanos(2), 10_000)) {
+            bus.addListener("audit", batch -> auditSeen.add(batch.size()));
+            bus.addListener("metrics", batch -> metricsSeen.add(batch.size()));
+            bus.addListener("email", batch -> {
+                try { Thread.sleep(5); } catch (InterruptedException e) { Thread.currentThread().interrupt(); } // Slow SMTP
+            });
+            Thread.sleep(10); // Let the dispatcher pick up the registrations
+            
+            Thread[] publishers = new Thread[4];
+            for (int i = 0; i < publishers.length; i++) {
+                final int publisherId = i;
+                publishers[i] = new Thread(() -> {
+                    for (int j = 0; j < 50_000; j++) {
+                        bus.publish("Event-P" + publisherId + "-" + j);
+                    }
+                });
+            }
+            for (Thread t : publishers) t.start();
+            for (Thread t : publishers) t.join();
+            Thread.sleep(50);
+            bus.printMetrics(System.nanoTime() - eventsStart);
+        }
+        System.out.println("  Fast listeners saw every event: audit=" + auditSeen.sum() + ", metrics=" + metricsSeen.sum());
+        System.out.println();
+        
+        // ============================================
+        // Demo 11: Ring Buffer vs BlockingQueues
+        // ============================================
+        System.out.println("--- 11. Ring Buffer vs BlockingQueue (2 consumers, batch drain) ---");
+        int handoffItems = 2_000_000;
+        for (int producerCount : new int[] { 1, 2, 4, 8 }) {
+            LinkedBlockingQueue<Object> linked = new LinkedBlockingQueue<>(1024);
+            ArrayBlockingQueue<Object> array = new ArrayBlockingQueue<>(1024);
+            RingBuffer<Object> ring = new RingBuffer<>(1024,
+                producerCount == 1 ? RingBuffer.ProducerType.SINGLE : RingBuffer.ProducerType.MULTI,
+                RingBuffer.WaitStrategy.YIELD);
+            long linkedTime = timeHandoff(producerCount, 2, handoffItems, new Handoff() {
+                public void put(Object item) throws InterruptedException { linked.put(item); }
+                public int drainTo(List<Object> batch, int max) throws InterruptedException {
+                    batch.add(linked.take());
+                    return 1 + linked.drainTo(batch, max - 1);
+                }
+            });
+            long arrayTime = timeHandoff(producerCount, 2, handoffItems, new Handoff() {
+                public void put(Object item) throws InterruptedException { array.put(item); }
+                public int drainTo(List<Object> batch, int max) throws InterruptedException {
+                    batch.add(array.take());
+                    return 1 + array.drainTo(batch, max - 1);
+                }
+            });
+            long ringTime = timeHandoff(producerCount, 2, handoffItems, new Handoff() {
+                public void put(Object item) throws InterruptedException { ring.put(item); }
+                public int drainTo(List<Object> batch, int max) throws InterruptedException { return ring.drainTo(batch, max); }
+            });
+            System.out.println(String.format("  %d producer(s): LinkedBlockingQueue %4dms, ArrayBlockingQueue %4dms, RingBuffer %4dms",
+                producerCount, linkedTime / 1_000_000, arrayTime / 1_000_000, ringTime / 1_000_000));
+        }
+        System.out.println();
+        
+        // ============================================
+        // Demo 12: Work-Stealing Scheduler
+        // ============================================
+        System.out.println("--- 12. Work-Stealing Scheduler vs one shared queue ---");
+        int rootTasks = 8, childrenPerRoot = 50_000;
+        long totalTasks = rootTasks * (1L + childrenPerRoot);
+        
+        // TaskQueue's model: every consumer polls one ConcurrentLinkedQueue
+        ConcurrentLinkedQueue<Runnable> sharedQueue = new ConcurrentLinkedQueue<>();
+        LongAdder sharedDone = new LongAdder();
+        for (int i = 0; i < rootTasks; i++) {
+            sharedQueue.offer(() -> {
+                for (int j = 0; j < childrenPerRoot; j++) {
+                    sharedQueue.offer(sharedDone::increment);
+                }
+                sharedDone.increment();
+            });
+        }
+        long sharedTime = timeThreads(4, () -> {
+            while (sharedDone.sum() < totalTasks) {
+                Runnable task = sharedQueue.poll();
+                if (task != null) task.run();
+                else Thread.onSpinWait();
+            }
+        });
+        
+        WorkStealingScheduler<Runnable> scheduler = new WorkStealingScheduler<>(4);
+        LongAdder stealingDone = new LongAdder();
+        scheduler.start(Runnable::run);
+        long stealingStart = System.nanoTime();
+        for (int i = 0; i < rootTasks; i++) {
+            scheduler.submit(() -> {
+                // Runs on a worker: children go onto its own deque for the others to steal
+                for (int j = 0; j < childrenPerRoot; j++) {
+                    scheduler.submit(stealingDone::increment);
+                }
+                stealingDone.increment();
+            });
+        }
+        while (stealingDone.sum() < totalTasks) Thread.yield();
+        long stealingTime = System.nanoTime() - stealingStart;
+        System.out.println("  Shared ConcurrentLinkedQueue: " + sharedTime / 1_000_000 + "ms for " + totalTasks + " tasks");
+        System.out.println("  Work-stealing scheduler:      " + stealingTime / 1_000_000 + "ms for " + stealingDone.sum() + " tasks");
+        scheduler.printStats();
+        scheduler.shutdown();
+        
+        // Same addTask/pollTask calls as TaskQueue
+        WorkStealingScheduler<String> facade = new WorkStealingScheduler<>(2);
+        facade.addTask("Task-A");
+        facade.addTask("Task-B");
+        while (!facade.isEmpty()) facade.pollTask();
         System.out.println();
         
         System.out.println("=== Key Takeaways ===");
@@ -326,6 +3071,14 @@ public class ConcurrentCollectionsDemo {
         System.out.println("• CopyOnWriteArrayList: Read-optimized, safe iteration during modification");
         System.out.println("• BlockingQueue: Producer-consumer pattern with blocking");
         System.out.println("• ConcurrentLinkedQueue: Lock-free, unbounded queue");
+        System.out.println("• Bounded caches: W-TinyLFU admission keeps hot keys, evicts one-hit wonders");
+        System.out.println("• Primitive counter maps: count without boxing or String churn");
+        System.out.println("• Off-heap tiers: keep large working sets out of the GC's view");
+        System.out.println("• Mapped snapshots: restart warm instead of stampeding the database");
+        System.out.println("• Event buses: batch through a ring, isolate slow listeners");
+        System.out.println("• Ring buffers: preallocated slots and batch drains beat node-per-put queues");
+        System.out.println("• Work stealing: per-worker deques, consumers only meet when one runs dry");
+        System.out.println("• Primitive open-addressing maps: 8 bytes a slot instead of a Node and two Integers");
         System.out.println("• Always prefer concurrent collections over synchronized wrappers!");
     }
 }
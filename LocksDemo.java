@@ -1,5 +1,7 @@
+import java.util.*;
 import java.util.concurrent.locks.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 public class LocksDemo {
     
@@ -99,7 +101,7 @@ public class LocksDemo {
     // 3. Lock with Timeout Example
     // ============================================
     static class TimedResource {
-        private final Lock lock = new ReentrantLock();
+        private final Lock lock = new InstrumentedLock("TimedResource");
         
         public void accessWithTimeout(String user) {
             try {
@@ -122,6 +124,689 @@ public class LocksDemo {
         }
     }
     
+    // ============================================
+    // 4. Striped Ledger (many accounts, fixed lock pool)
+    // ============================================
+    // Balances live in one AtomicLongArray; accounts hash onto a fixed pool of
+    // locks, so a million accounts need a few dozen locks, not a million.
+    // A transfer takes its two stripes in index order, which rules out deadlock.
+    // Writes happen under the stripe lock; balance() is a plain volatile read.
+    static class StripedLedger {
+        private final AtomicLongArray balances;
+        private final ReentrantLock[] stripes;
+        private final int mask;
+        
+        public StripedLedger(int accounts, long initialBalance, int stripeCount) {
+            this.balances = new AtomicLongArray(accounts);
+            for (int i = 0; i < accounts; i++) {
+                balances.set(i, initialBalance);
+            }
+            int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+            this.stripes = new ReentrantLock[count];
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new ReentrantLock();
+            }
+            this.mask = count - 1;
+        }
+        
+        // Lock-free: one account's balance is always consistent on its own
+        public long balance(int account) {
+            return balances.get(account);
+        }
+        
+        public boolean transfer(int from, int to, long amount) {
+            if (amount <= 0) throw new IllegalArgumentException("amount must be positive: " + amount);
+            if (from == to) return true;
+            int a = stripeFor(from), b = stripeFor(to);
+            ReentrantLock first = stripes[Math.min(a, b)];
+            ReentrantLock second = stripes[Math.max(a, b)];
+            first.lock();
+            try {
+                if (second != first) second.lock();
+                try {
+                    long fromBalance = balances.get(from);
+                    if (fromBalance < amount) return false;
+                    balances.set(from, fromBalance - amount);
+                    balances.set(to, balances.get(to) + amount);
+                    return true;
+                } finally {
+                    if (second != first) second.unlock();
+                }
+            } finally {
+                first.unlock();
+            }
+        }
+        
+        // Takes every stripe (in order), so no transfer is half-applied
+        public long totalBalance() {
+            for (ReentrantLock stripe : stripes) stripe.lock();
+            try {
+                long total = 0;
+                for (int i = 0; i < balances.length(); i++) {
+                    total += balances.get(i);
+                }
+                return total;
+            } finally {
+                for (int i = stripes.length - 1; i >= 0; i--) stripes[i].unlock();
+            }
+        }
+        
+        public int accounts() {
+            return balances.length();
+        }
+        
+        private int stripeFor(int account) {
+            int h = account * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+    
+    // ============================================
+    // 5. Optimistic Reads (StampedLock, seqlock)
+    // ============================================
+    // SharedCache makes every reader take the read lock and bump readCount, so
+    // readers write shared cache lines even when nothing changes. Here readers
+    // only read: a stamp (or sequence number) taken before and checked after
+    // tells them whether a writer got in between. Reader counts go to a
+    // LongAdder, whose per-thread cells keep them off one shared line.
+    interface ReadMostlyCache {
+        String read();
+        void write(String newData);
+        long readCount();
+    }
+    
+    // Baseline: SharedCache's pattern without the sleeps and printing
+    static class ReadWriteLockCache implements ReadMostlyCache {
+        private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+        private String data = "Initial Data";
+        private final AtomicLong readCount = new AtomicLong();
+        
+        public String read() {
+            rwLock.readLock().lock();
+            try {
+                readCount.incrementAndGet();
+                return data;
+            } finally {
+                rwLock.readLock().unlock();
+            }
+        }
+        
+        public void write(String newData) {
+            rwLock.writeLock().lock();
+            try {
+                data = newData;
+            } finally {
+                rwLock.writeLock().unlock();
+            }
+        }
+        
+        public long readCount() {
+            return readCount.get();
+        }
+    }
+    
+    static class StampedCache implements ReadMostlyCache {
+        private final StampedLock lock = new StampedLock();
+        private String data = "Initial Data";
+        private final LongAdder readCount = new LongAdder();
+        private final LongAdder fallbacks = new LongAdder();
+        
+        public String read() {
+            readCount.increment();
+            long stamp = lock.tryOptimisticRead();
+            String current = data;
+            if (lock.validate(stamp)) return current;
+            // A write happened (or is in progress): read once under the read lock
+            fallbacks.increment();
+            stamp = lock.readLock();
+            try {
+                return data;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        
+        public void write(String newData) {
+            long stamp = lock.writeLock();
+            try {
+                data = newData;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        
+        public long readCount() {
+            return readCount.sum();
+        }
+        
+        public long fallbackCount() {
+            return fallbacks.sum();
+        }
+    }
+    
+    // Writers make the sequence odd while writing and even when done; a reader
+    // retries until it sees the same even number before and after its read.
+    // Writers serialize on a plain lock; readers never block them.
+    static class SeqLockCache implements ReadMostlyCache {
+        private final AtomicLong sequence = new AtomicLong();
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private volatile String data = "Initial Data";
+        private final LongAdder readCount = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        
+        public String read() {
+            readCount.increment();
+            for (int attempt = 1; ; attempt++) {
+                long before = sequence.get();
+                if ((before & 1) == 0) {
+                    String current = data;
+                    if (sequence.get() == before) return current;
+                }
+                retries.increment();
+                // The writer may have been descheduled mid-write: stop spinning on it
+                if ((attempt & 63) == 0) Thread.yield();
+                else Thread.onSpinWait();
+            }
+        }
+        
+        public void write(String newData) {
+            writeLock.lock();
+            try {
+                sequence.incrementAndGet(); // Odd: write in progress
+                data = newData;
+                sequence.incrementAndGet(); // Even: stable again
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        
+        public long readCount() {
+            return readCount.sum();
+        }
+        
+        public long retryCount() {
+            return retries.sum();
+        }
+    }
+    
+    // ============================================
+    // 6. Sharded Cache (one ReadWriteLock per shard)
+    // ============================================
+    // SharedCache's read/write locking, but per shard: a write only blocks
+    // readers of keys in its own shard. Bulk calls group keys by shard and take
+    // each shard's lock once. Every acquisition first tries the lock without
+    // waiting; a failed try counts as contention and the wait is timed.
+    static class ShardedCache<K, V> {
+        private final Shard<K, V>[] shards;
+        private final int mask;
+        
+        static final class Shard<K, V> {
+            final Map<K, V> map = new HashMap<>();
+            final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+            final LongAdder reads = new LongAdder();
+            final LongAdder writes = new LongAdder();
+            final LongAdder acquisitions = new LongAdder();
+            final LongAdder contended = new LongAdder();
+            final LongAdder waitNanos = new LongAdder();
+            
+            void lockRead() {
+                acquisitions.increment();
+                if (!lock.readLock().tryLock()) {
+                    long start = System.nanoTime();
+                    lock.readLock().lock();
+                    contended.increment();
+                    waitNanos.add(System.nanoTime() - start);
+                }
+            }
+            
+            void lockWrite() {
+                acquisitions.increment();
+                if (!lock.writeLock().tryLock()) {
+                    long start = System.nanoTime();
+                    lock.writeLock().lock();
+                    contended.increment();
+                    waitNanos.add(System.nanoTime() - start);
+                }
+            }
+        }
+        
+        public ShardedCache() {
+            this(Runtime.getRuntime().availableProcessors());
+        }
+        
+        public ShardedCache(int shardCount) {
+            int count = Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1;
+            @SuppressWarnings("unchecked")
+            Shard<K, V>[] array = (Shard<K, V>[]) new Shard<?, ?>[count];
+            shards = array;
+            for (int i = 0; i < count; i++) {
+                shards[i] = new Shard<>();
+            }
+            mask = count - 1;
+        }
+        
+        public V get(K key) {
+            Shard<K, V> shard = shardFor(key);
+            shard.lockRead();
+            try {
+                shard.reads.increment();
+                return shard.map.get(key);
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        
+        public V put(K key, V value) {
+            Shard<K, V> shard = shardFor(key);
+            shard.lockWrite();
+            try {
+                shard.writes.increment();
+                return shard.map.put(key, value);
+            } finally {
+                shard.lock.writeLock().unlock();
+            }
+        }
+        
+        public V remove(K key) {
+            Shard<K, V> shard = shardFor(key);
+            shard.lockWrite();
+            try {
+                shard.writes.increment();
+                return shard.map.remove(key);
+            } finally {
+                shard.lock.writeLock().unlock();
+            }
+        }
+        
+        // Absent keys are left out of the result
+        public Map<K, V> getAll(Collection<K> keys) {
+            Map<K, V> result = new HashMap<>();
+            for (Map.Entry<Integer, List<K>> group : groupByShard(keys).entrySet()) {
+                Shard<K, V> shard = shards[group.getKey()];
+                shard.lockRead();
+                try {
+                    shard.reads.add(group.getValue().size());
+                    for (K key : group.getValue()) {
+                        V value = shard.map.get(key);
+                        if (value != null) result.put(key, value);
+                    }
+                } finally {
+                    shard.lock.readLock().unlock();
+                }
+            }
+            return result;
+        }
+        
+        public void putAll(Map<K, V> entries) {
+            for (Map.Entry<Integer, List<K>> group : groupByShard(entries.keySet()).entrySet()) {
+                Shard<K, V> shard = shards[group.getKey()];
+                shard.lockWrite();
+                try {
+                    shard.writes.add(group.getValue().size());
+                    for (K key : group.getValue()) {
+                        shard.map.put(key, entries.get(key));
+                    }
+                } finally {
+                    shard.lock.writeLock().unlock();
+                }
+            }
+        }
+        
+        public int size() {
+            int size = 0;
+            for (Shard<K, V> shard : shards) {
+                shard.lockRead();
+                try {
+                    size += shard.map.size();
+                } finally {
+                    shard.lock.readLock().unlock();
+                }
+            }
+            return size;
+        }
+        
+        public int shardCount() {
+            return shards.length;
+        }
+        
+        // Fraction of this shard's lock acquisitions that had to wait
+        public double contentionRate(int shard) {
+            long acquisitions = shards[shard].acquisitions.sum();
+            return acquisitions == 0 ? 0 : (double) shards[shard].contended.sum() / acquisitions;
+        }
+        
+        // A shard waiting far more than its neighbours is the one to split
+        public void printShardStats() {
+            for (int i = 0; i < shards.length; i++) {
+                Shard<K, V> shard = shards[i];
+                int size;
+                shard.lock.readLock().lock(); // Directly, so the report doesn't show up in its own counters
+                try {
+                    size = shard.map.size();
+                } finally {
+                    shard.lock.readLock().unlock();
+                }
+                System.out.println(String.format("  Shard %2d: size=%d reads=%d writes=%d contended=%d (%.2f%%) waited=%dms",
+                    i, size, shard.reads.sum(), shard.writes.sum(), shard.contended.sum(),
+                    contentionRate(i) * 100, shard.waitNanos.sum() / 1_000_000));
+            }
+        }
+        
+        private Shard<K, V> shardFor(K key) {
+            return shards[indexFor(key)];
+        }
+        
+        private int indexFor(K key) {
+            int h = key.hashCode() * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+        
+        // TreeMap: shards are visited in index order
+        private Map<Integer, List<K>> groupByShard(Collection<K> keys) {
+            Map<Integer, List<K>> groups = new TreeMap<>();
+            for (K key : keys) {
+                groups.computeIfAbsent(indexFor(key), i -> new ArrayList<>()).add(key);
+            }
+            return groups;
+        }
+    }
+    
+    // ============================================
+    // 7. Instrumented Lock (contention profiler)
+    // ============================================
+    // A Lock that measures itself. The uncontended path is a tryLock() plus a
+    // thread-local coin flip: 1 in sampleRate acquisitions also records hold
+    // time. Once a thread has to wait, everything is recorded: the wait, the
+    // hold that follows, and which thread owned the lock at the time. The most
+    // recent waits and holds go into plain rings and percentiles sort a copy
+    // on read: holds are written by the owner, waits (already slow) under a monitor.
+    static class InstrumentedLock implements Lock {
+        private static final int SAMPLES = 4096; // Power of two
+        private final String name;
+        private final OwnerAwareLock delegate = new OwnerAwareLock();
+        private final int sampleRate;
+        private final long[] waitSamples = new long[SAMPLES];
+        private final long[] holdSamples = new long[SAMPLES];
+        // Written after the sample, so a reader that sees the count sees the sample
+        private volatile long waitSampleCount;
+        private volatile long holdSampleCount;
+        private final LongAdder sampledAcquisitions = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final ConcurrentHashMap<String, LongAdder> blockingOwners = new ConcurrentHashMap<>();
+        private long holdStart; // Written by the owner only; 0 = this hold is not being timed
+        
+        // Only here to expose the protected getOwner()
+        static final class OwnerAwareLock extends ReentrantLock {
+            private static final long serialVersionUID = 1L;
+            
+            Thread owner() {
+                return getOwner();
+            }
+        }
+        
+        public InstrumentedLock(String name) {
+            this(name, 64);
+        }
+        
+        public InstrumentedLock(String name, int sampleRate) {
+            this.name = name;
+            this.sampleRate = sampleRate;
+            LockProfiler.register(this);
+        }
+        
+        @Override
+        public void lock() {
+            if (delegate.tryLock()) {
+                acquiredFast();
+                return;
+            }
+            long start = beforeWait();
+            delegate.lock();
+            acquiredAfterWait(start);
+        }
+        
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (delegate.tryLock()) {
+                acquiredFast();
+                return;
+            }
+            long start = beforeWait();
+            delegate.lockInterruptibly();
+            acquiredAfterWait(start);
+        }
+        
+        @Override
+        public boolean tryLock() {
+            if (!delegate.tryLock()) return false;
+            acquiredFast();
+            return true;
+        }
+        
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (delegate.tryLock()) {
+                acquiredFast();
+                return true;
+            }
+            long start = beforeWait();
+            if (delegate.tryLock(time, unit)) {
+                acquiredAfterWait(start);
+                return true;
+            }
+            timeouts.increment();
+            recordWait(System.nanoTime() - start);
+            return false;
+        }
+        
+        @Override
+        public void unlock() {
+            if (delegate.getHoldCount() == 1 && holdStart != 0) {
+                long n = holdSampleCount;
+                holdSamples[(int) n & (SAMPLES - 1)] = System.nanoTime() - holdStart;
+                holdSampleCount = n + 1;
+                holdStart = 0;
+            }
+            delegate.unlock();
+        }
+        
+        @Override
+        public Condition newCondition() {
+            return delegate.newCondition();
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public long getContendedCount() {
+            return contended.sum();
+        }
+        
+        public long getTimeoutCount() {
+            return timeouts.sum();
+        }
+        
+        // Uncontended acquisitions are only sampled, so this is an estimate
+        public long getEstimatedAcquisitions() {
+            return sampledAcquisitions.sum() * sampleRate + contended.sum();
+        }
+        
+        public long getTotalWaitNanos() {
+            return totalWaitNanos.sum();
+        }
+        
+        // Sorted copies of the last SAMPLES waits/holds; may race with a sample being written
+        public long[] getRecentWaits() {
+            return sortedRecent(waitSamples, waitSampleCount);
+        }
+        
+        public long[] getRecentHolds() {
+            return sortedRecent(holdSamples, holdSampleCount);
+        }
+        
+        // Nearest-rank percentile of a sorted sample; 0 if empty
+        static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) return 0;
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+        
+        private static long[] sortedRecent(long[] samples, long count) {
+            long[] copy = Arrays.copyOf(samples, (int) Math.min(count, SAMPLES));
+            Arrays.sort(copy);
+            return copy;
+        }
+        
+        // Name of the thread that most often held the lock while others waited
+        public String getTopBlockingOwner() {
+            String top = null;
+            long topCount = 0;
+            for (Map.Entry<String, LongAdder> e : blockingOwners.entrySet()) {
+                long count = e.getValue().sum();
+                if (count > topCount) {
+                    top = e.getKey();
+                    topCount = count;
+                }
+            }
+            return top == null ? "-" : top + " (" + topCount + "x)";
+        }
+        
+        private void acquiredFast() {
+            if (delegate.getHoldCount() == 1 && ThreadLocalRandom.current().nextInt(sampleRate) == 0) {
+                sampledAcquisitions.increment();
+                holdStart = System.nanoTime();
+            }
+        }
+        
+        private long beforeWait() {
+            contended.increment();
+            Thread owner = delegate.owner();
+            if (owner != null) {
+                blockingOwners.computeIfAbsent(owner.getName(), k -> new LongAdder()).increment();
+            }
+            return System.nanoTime();
+        }
+        
+        private void acquiredAfterWait(long start) {
+            long now = System.nanoTime();
+            recordWait(now - start);
+            if (delegate.getHoldCount() == 1) holdStart = now;
+        }
+        
+        // Timed-out waiters don't hold the lock, hence the monitor
+        private void recordWait(long nanos) {
+            synchronized (waitSamples) {
+                long n = waitSampleCount;
+                waitSamples[(int) n & (SAMPLES - 1)] = nanos;
+                waitSampleCount = n + 1;
+            }
+            totalWaitNanos.add(nanos);
+        }
+    }
+    
+    // Keeps every InstrumentedLock (meant for long-lived locks) and reports
+    // the ones threads waited on longest.
+    static class LockProfiler {
+        // Weakly held: a lock nobody references any more drops out of the report
+        private static final Set<InstrumentedLock> LOCKS =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+        
+        static void register(InstrumentedLock lock) {
+            LOCKS.add(lock);
+        }
+        
+        public static void unregister(InstrumentedLock lock) {
+            LOCKS.remove(lock);
+        }
+        
+        public static List<InstrumentedLock> topContended(int limit) {
+            List<InstrumentedLock> sorted;
+            synchronized (LOCKS) {
+                sorted = new ArrayList<>(LOCKS);
+            }
+            sorted.sort((a, b) -> Long.compare(b.getTotalWaitNanos(), a.getTotalWaitNanos()));
+            return sorted.subList(0, Math.min(limit, sorted.size()));
+        }
+        
+        public static void printReport(int limit) {
+            System.out.println("  Top contended locks:");
+            for (InstrumentedLock lock : topContended(limit)) {
+                long[] waits = lock.getRecentWaits();
+                long[] holds = lock.getRecentHolds();
+                System.out.println(String.format(
+                    "    %-16s acquired~%d contended=%d timeouts=%d waited=%dms (p50=%.1fµs p99=%.1fµs max=%.1fµs) hold p50=%.1fµs p99=%.1fµs blocked by %s",
+                    lock.getName(), lock.getEstimatedAcquisitions(), lock.getContendedCount(), lock.getTimeoutCount(),
+                    lock.getTotalWaitNanos() / 1_000_000, InstrumentedLock.percentile(waits, 50) / 1000.0,
+                    InstrumentedLock.percentile(waits, 99) / 1000.0, InstrumentedLock.percentile(waits, 100) / 1000.0,
+                    InstrumentedLock.percentile(holds, 50) / 1000.0, InstrumentedLock.percentile(holds, 99) / 1000.0,
+                    lock.getTopBlockingOwner()));
+            }
+        }
+        
+        // Prints the report every period on a daemon thread; shut the returned executor down to stop
+        public static ScheduledExecutorService startPeriodicReport(long period, TimeUnit unit, int limit) {
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "LockProfiler-Report");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleAtFixedRate(() -> printReport(limit), period, period, unit);
+            return scheduler;
+        }
+    }
+    
+    // Benchmark loops store their result here so the JIT can't drop the reads
+    private static volatile int blackhole;
+    
+    // Runs opsPerThread mixed reads/writes on each thread; returns elapsed nanos
+    private static long benchmarkCache(ReadMostlyCache cache, int threads, int opsPerThread, int writePercent)
+            throws InterruptedException {
+        String[] values = { "Data-A", "Data-B", "Data-C", "Data-D" };
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int seen = 0;
+                for (int j = 0; j < opsPerThread; j++) {
+                    if (random.nextInt(100) < writePercent) {
+                        cache.write(values[j & 3]);
+                    } else {
+                        seen += cache.read().length();
+                    }
+                }
+                blackhole = seen;
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        return System.nanoTime() - start;
+    }
+    
+    // Splits totalOps lock/increment/unlock rounds over the threads; returns elapsed nanos
+    private static long timeLockOps(Lock lock, int threads, int totalOps, long[] counter) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < totalOps / threads; j++) {
+                    lock.lock();
+                    try {
+                        counter[0]++;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        return System.nanoTime() - start;
+    }
+    
     public static void main(String[] args) throws InterruptedException {
         System.out.println("=== Locks Demo ===\n");
         
@@ -204,11 +889,112 @@ public class LocksDemo {
         t6.join();
         t7.join();
         
+        // ============================================
+        // Demo 5: Striped Ledger
+        // ============================================
+        System.out.println("\n--- 5. Striped Ledger (1M accounts, random transfers) ---");
+        int stripeCount = Runtime.getRuntime().availableProcessors() * 16;
+        StripedLedger ledger = new StripedLedger(1_000_000, 1_000, stripeCount);
+        long expectedTotal = ledger.totalBalance();
+        for (int threads : new int[] { 1, 2, 4, 8 }) {
+            int transfersPerThread = 1_000_000 / threads;
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < transfersPerThread; j++) {
+                        ledger.transfer(random.nextInt(ledger.accounts()), random.nextInt(ledger.accounts()),
+                            1 + random.nextInt(100));
+                    }
+                });
+            }
+            long start = System.nanoTime();
+            for (Thread w : workers) w.start();
+            for (Thread w : workers) w.join();
+            long elapsed = System.nanoTime() - start;
+            long total = ledger.totalBalance();
+            System.out.println(String.format("  %d thread(s): %,.0f transfers/sec, total balance %d %s", threads,
+                transfersPerThread * threads * 1e9 / elapsed, total, total == expectedTotal ? "(unchanged)" : "(MISMATCH!)"));
+        }
+        
+        // ============================================
+        // Demo 6: Optimistic Reads
+        // ============================================
+        System.out.println("\n--- 6. ReadWriteLock vs StampedLock vs Seqlock (4 threads) ---");
+        for (int writePercent : new int[] { 1, 10, 50 }) {
+            ReadWriteLockCache rwCache = new ReadWriteLockCache();
+            StampedCache stampedCache = new StampedCache();
+            SeqLockCache seqCache = new SeqLockCache();
+            int ops = 1_000_000;
+            long rwTime = benchmarkCache(rwCache, 4, ops, writePercent);
+            long stampedTime = benchmarkCache(stampedCache, 4, ops, writePercent);
+            long seqTime = benchmarkCache(seqCache, 4, ops, writePercent);
+            System.out.println(String.format("  %d/%d read/write: ReadWriteLock %4dms, StampedLock %4dms (%d fallbacks), Seqlock %4dms (%d retries)",
+                100 - writePercent, writePercent, rwTime / 1_000_000, stampedTime / 1_000_000,
+                stampedCache.fallbackCount(), seqTime / 1_000_000, seqCache.retryCount()));
+        }
+        
+        // ============================================
+        // Demo 7: Sharded Cache
+        // ============================================
+        ShardedCache<String, String> sharded = new ShardedCache<>(8);
+        System.out.println("\n--- 7. Sharded Cache (" + sharded.shardCount() + " shards, one hot key) ---");
+        Thread[] shardWorkers = new Thread[4];
+        for (int i = 0; i < shardWorkers.length; i++) {
+            shardWorkers[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                List<String> batch = new ArrayList<>();
+                for (int j = 0; j < 200_000; j++) {
+                    // A quarter of all traffic rewrites one key: its shard turns hot
+                    if ((j & 3) == 0) {
+                        sharded.put("hot-config", "v" + j);
+                    } else {
+                        batch.add("user" + random.nextInt(10_000));
+                        if (batch.size() == 16) {
+                            sharded.getAll(batch);
+                            batch.clear();
+                        }
+                        if (random.nextInt(100) == 0) sharded.put("user" + random.nextInt(10_000), "profile");
+                    }
+                }
+            });
+        }
+        for (Thread w : shardWorkers) w.start();
+        for (Thread w : shardWorkers) w.join();
+        sharded.printShardStats();
+        
+        // ============================================
+        // Demo 8: Lock Contention Profiler
+        // ============================================
+        System.out.println("\n--- 8. Instrumented Lock (overhead and contention report) ---");
+        List<InstrumentedLock> benchLocks = new ArrayList<>(); // The profiler only holds them weakly
+        for (int threads : new int[] { 1, 4 }) {
+            Lock plain = new ReentrantLock();
+            InstrumentedLock instrumented = new InstrumentedLock("bench-" + threads + "t");
+            benchLocks.add(instrumented);
+            long[] counter = new long[1];
+            int lockOps = 2_000_000;
+            timeLockOps(plain, threads, lockOps, counter); // Warm-up
+            timeLockOps(instrumented, threads, lockOps, counter);
+            long plainTime = timeLockOps(plain, threads, lockOps, counter);
+            long instrumentedTime = timeLockOps(instrumented, threads, lockOps, counter);
+            System.out.println(String.format("  %d thread(s): ReentrantLock %.1f ns/op, InstrumentedLock %.1f ns/op",
+                threads, (double) plainTime / lockOps, (double) instrumentedTime / lockOps));
+        }
+        ScheduledExecutorService reporter = LockProfiler.startPeriodicReport(200, TimeUnit.MILLISECONDS, 3);
+        Thread.sleep(250);
+        reporter.shutdown();
+        benchLocks.forEach(LockProfiler::unregister);
+        
         System.out.println("\n=== Key Takeaways ===");
         System.out.println("• ReentrantLock: More flexible than synchronized");
         System.out.println("• tryLock(): Non-blocking lock attempt");
         System.out.println("• tryLock(timeout): Wait with timeout");
         System.out.println("• ReadWriteLock: Multiple readers OR one writer");
+        System.out.println("• Lock striping: a fixed lock pool for many objects, taken in index order");
+        System.out.println("• Optimistic reads: validate a stamp instead of locking, fall back only after a write");
+        System.out.println("• Sharding: a write blocks one shard's readers, not the whole cache");
+        System.out.println("• Instrumented locks: sample the fast path, measure every wait");
         System.out.println("• Always unlock in finally block!");
     }
 }
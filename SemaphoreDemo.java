@@ -1,4 +1,8 @@
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.concurrent.locks.*;
 
 public class SemaphoreDemo {
     
@@ -141,6 +145,1010 @@ public class SemaphoreDemo {
         }
     }
     
+    // ============================================
+    // 5. Object Pool (thread-local fast path + shared bag)
+    // ============================================
+    // Unlike DatabaseConnectionPool this hands out real objects. borrow() first
+    // tries the entries this thread returned most recently, then scans the
+    // shared bag (a CopyOnWriteArrayList: reads never lock, writes only happen
+    // when an object is created or retired), then creates one if under
+    // maxSize, and finally waits on a handoff queue that release() feeds
+    // directly. Each entry's state is one CAS'd int, so the same entry can sit
+    // in several thread-local lists and in the bag at once without being
+    // handed out twice. A housekeeping thread retires idle and too-old objects.
+    static class ObjectPool<T> implements AutoCloseable {
+        private static final int NOT_IN_USE = 0;
+        private static final int IN_USE = 1;
+        private static final int REMOVED = -1;
+        private static final int THREAD_LOCAL_ENTRIES = 8;
+        
+        private final Supplier<T> factory;
+        private final Consumer<T> destroyer;
+        private final int maxSize;
+        private final long maxLifetimeNanos;
+        private final long idleTimeoutNanos;
+        private final CopyOnWriteArrayList<Entry<T>> shared = new CopyOnWriteArrayList<>();
+        private final ThreadLocal<ArrayList<Entry<T>>> recent = ThreadLocal.withInitial(() -> new ArrayList<>(THREAD_LOCAL_ENTRIES));
+        private final SynchronousQueue<Entry<T>> handoff = new SynchronousQueue<>(true);
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger waiters = new AtomicInteger();
+        private final ScheduledExecutorService housekeeper;
+        // nanoTime() costs tens of ns on some VMs; the fast path reads this instead
+        private volatile long coarseNanos = System.nanoTime();
+        
+        private final LongAdder borrows = new LongAdder();
+        private final LongAdder threadLocalHits = new LongAdder();
+        private final LongAdder handoffs = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder created = new LongAdder();
+        private final LongAdder retired = new LongAdder();
+        // The most recent borrows that had to wait; they are already slow, so a monitor is fine
+        private final long[] borrowWaits = new long[1024];
+        private long borrowWaitCount; // Guarded by borrowWaits
+        
+        static final class Entry<T> {
+            final T object;
+            final long createdAt;
+            final AtomicInteger state = new AtomicInteger(IN_USE);
+            volatile long lastReturned;
+            
+            Entry(T object, long now) {
+                this.object = object;
+                this.createdAt = now;
+                this.lastReturned = now;
+            }
+        }
+        
+        // What borrow() returns: close() gives the object back
+        public final class Lease implements AutoCloseable {
+            private final Entry<T> entry;
+            private boolean released;
+            
+            Lease(Entry<T> entry) {
+                this.entry = entry;
+            }
+            
+            public T get() {
+                if (released) throw new IllegalStateException("Lease already released");
+                return entry.object;
+            }
+            
+            @Override
+            public void close() {
+                if (released) return;
+                released = true;
+                release(entry);
+            }
+        }
+        
+        public ObjectPool(Supplier<T> factory, Consumer<T> destroyer, int maxSize,
+                          long maxLifetime, long idleTimeout, TimeUnit unit) {
+            if (maxSize < 1) throw new IllegalArgumentException("maxSize must be >= 1: " + maxSize);
+            this.factory = factory;
+            this.destroyer = destroyer;
+            this.maxSize = maxSize;
+            this.maxLifetimeNanos = unit.toNanos(maxLifetime);
+            this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+            this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ObjectPool-Housekeeper");
+                t.setDaemon(true);
+                return t;
+            });
+            housekeeper.scheduleAtFixedRate(() -> coarseNanos = System.nanoTime(), 10, 10, TimeUnit.MILLISECONDS);
+            long period = Math.max(1, Math.min(maxLifetimeNanos, idleTimeoutNanos) / 4);
+            housekeeper.scheduleWithFixedDelay(this::evictExpired, period, period, TimeUnit.NANOSECONDS);
+        }
+        
+        public Lease borrow(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            borrows.increment();
+            
+            // 1. What this thread returned last, newest first
+            ArrayList<Entry<T>> mine = recent.get();
+            for (int i = mine.size() - 1; i >= 0; i--) {
+                Entry<T> entry = mine.remove(i);
+                if (entry.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+                    threadLocalHits.increment();
+                    return new Lease(entry);
+                }
+            }
+            
+            // 2. The shared bag
+            for (Entry<T> entry : shared) {
+                if (entry.state.compareAndSet(NOT_IN_USE, IN_USE)) return new Lease(entry);
+            }
+            // 3. Room for one more
+            Entry<T> fresh = tryCreate();
+            if (fresh != null) return new Lease(fresh);
+            
+            // 4. Wait for a release() to hand one over. Only now do we count as a
+            // waiter: until then release() can take its cheap thread-local path.
+            waiters.incrementAndGet();
+            try {
+                // A release between the scan above and the increment didn't see us
+                for (Entry<T> entry : shared) {
+                    if (entry.state.compareAndSet(NOT_IN_USE, IN_USE)) return new Lease(entry);
+                }
+                long start = System.nanoTime();
+                long deadline = start + unit.toNanos(timeout);
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    Entry<T> entry = handoff.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)), TimeUnit.NANOSECONDS);
+                    if (entry == null) {
+                        // Retired entries free up room; a release may also have missed us
+                        for (Entry<T> e : shared) {
+                            if (e.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+                                entry = e;
+                                break;
+                            }
+                        }
+                        if (entry == null && (fresh = tryCreate()) != null) entry = fresh;
+                        if (entry != null) {
+                            recordWait(System.nanoTime() - start);
+                            return new Lease(entry);
+                        }
+                    } else if (entry.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+                        handoffs.increment();
+                        recordWait(System.nanoTime() - start);
+                        return new Lease(entry);
+                    }
+                }
+                timeouts.increment();
+                recordWait(System.nanoTime() - start);
+                throw new TimeoutException("No object available within " + timeout + " " + unit);
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+        
+        public int size() {
+            return size.get();
+        }
+        
+        public int idleCount() {
+            int idle = 0;
+            for (Entry<T> entry : shared) {
+                if (entry.state.get() == NOT_IN_USE) idle++;
+            }
+            return idle;
+        }
+        
+        public long getTimeoutCount() {
+            return timeouts.sum();
+        }
+        
+        public void printStats() {
+            System.out.println(String.format("  Pool: size=%d idle=%d borrows=%d thread-local hits=%d handoffs=%d timeouts=%d created=%d retired=%d",
+                size(), idleCount(), borrows.sum(), threadLocalHits.sum(), handoffs.sum(), timeouts.sum(),
+                created.sum(), retired.sum()));
+            long[] waits;
+            long count;
+            synchronized (borrowWaits) {
+                count = borrowWaitCount;
+                waits = Arrays.copyOf(borrowWaits, (int) Math.min(count, borrowWaits.length));
+            }
+            Arrays.sort(waits);
+            System.out.println(String.format("  Borrows that waited: count=%d p50=%dµs p99=%dµs max=%dµs",
+                count, percentile(waits, 50) / 1000, percentile(waits, 99) / 1000, percentile(waits, 100) / 1000));
+        }
+        
+        private void recordWait(long nanos) {
+            synchronized (borrowWaits) {
+                borrowWaits[(int) (borrowWaitCount++ % borrowWaits.length)] = nanos;
+            }
+        }
+        
+        // Stops housekeeping and destroys idle objects; leased ones are destroyed on return
+        @Override
+        public void close() {
+            housekeeper.shutdownNow();
+            for (Entry<T> entry : shared) {
+                if (entry.state.compareAndSet(NOT_IN_USE, REMOVED)) retire(entry);
+            }
+        }
+        
+        private void release(Entry<T> entry) {
+            long now = coarseNanos;
+            if (housekeeper.isShutdown() || now - entry.createdAt > maxLifetimeNanos) {
+                entry.state.set(REMOVED);
+                retire(entry);
+                return;
+            }
+            entry.lastReturned = now;
+            entry.state.set(NOT_IN_USE);
+            // Someone is waiting: hand it over directly while it is still free
+            while (waiters.get() > 0) {
+                if (entry.state.get() != NOT_IN_USE || handoff.offer(entry)) return;
+                Thread.yield();
+            }
+            ArrayList<Entry<T>> mine = recent.get();
+            if (mine.size() == THREAD_LOCAL_ENTRIES) mine.remove(0);
+            mine.add(entry);
+        }
+        
+        private Entry<T> tryCreate() {
+            int current;
+            while ((current = size.get()) < maxSize) {
+                if (size.compareAndSet(current, current + 1)) {
+                    try {
+                        Entry<T> entry = new Entry<>(factory.get(), System.nanoTime()); // Starts IN_USE
+                        shared.add(entry);
+                        created.increment();
+                        return entry;
+                    } catch (RuntimeException e) {
+                        size.decrementAndGet();
+                        throw e;
+                    }
+                }
+            }
+            return null;
+        }
+        
+        // Housekeeper thread: only idle entries are touched, each claimed by CAS first
+        private void evictExpired() {
+            long now = System.nanoTime();
+            for (Entry<T> entry : shared) {
+                boolean tooOld = now - entry.createdAt > maxLifetimeNanos;
+                boolean idleTooLong = now - entry.lastReturned > idleTimeoutNanos;
+                if ((tooOld || idleTooLong) && entry.state.compareAndSet(NOT_IN_USE, REMOVED)) {
+                    retire(entry);
+                }
+            }
+        }
+        
+        private void retire(Entry<T> entry) {
+            if (shared.remove(entry)) {
+                size.decrementAndGet();
+                retired.increment();
+                try {
+                    destroyer.accept(entry.object);
+                } catch (RuntimeException e) {
+                    System.out.println("  [ObjectPool] Destroy failed: " + e);
+                }
+            }
+        }
+    }
+    
+    // Stand-in for a JDBC connection: cheap to use, counted on open/close
+    static class FakeConnection {
+        private static final AtomicInteger OPEN = new AtomicInteger();
+        final int id;
+        long queries;
+        
+        FakeConnection(int id) {
+            this.id = id;
+            OPEN.incrementAndGet();
+        }
+        
+        long execute(String sql) {
+            return ++queries + sql.length();
+        }
+        
+        void close() {
+            OPEN.decrementAndGet();
+        }
+        
+        static int openCount() {
+            return OPEN.get();
+        }
+    }
+    
+    // ============================================
+    // 6. Token Bucket (lazy refill, no thread)
+    // ============================================
+    // RateLimiter refills from its own thread once a second, so every limiter
+    // costs a thread and all permits come back at once. Here the whole bucket
+    // is one long: the time at which it will be full again (GCRA's
+    // "theoretical arrival time"). Tokens are what has dripped back since
+    // then, so nothing needs refilling: acquiring n tokens just pushes that
+    // time n intervals later with one CAS. An empty bucket reports exactly
+    // how long until the next token, which is how long acquire() parks.
+    static class TokenBucket {
+        private final double nanosPerToken;
+        private final long burstNanos;         // A full bucket, expressed as time
+        private final AtomicLong fullAt;       // The single state word
+        
+        public TokenBucket(double tokensPerSecond, int burstCapacity) {
+            if (tokensPerSecond <= 0) throw new IllegalArgumentException("tokensPerSecond must be positive: " + tokensPerSecond);
+            if (burstCapacity < 1) throw new IllegalArgumentException("burstCapacity must be >= 1: " + burstCapacity);
+            this.nanosPerToken = 1_000_000_000.0 / tokensPerSecond;
+            this.burstNanos = (long) (nanosPerToken * burstCapacity);
+            this.fullAt = new AtomicLong(System.nanoTime()); // Starts full
+        }
+        
+        public boolean tryAcquire() {
+            return tryAcquire(1);
+        }
+        
+        // Non-blocking: takes all n tokens or none
+        public boolean tryAcquire(int permits) {
+            long cost = costOf(permits);
+            while (true) {
+                long now = System.nanoTime();
+                long current = fullAt.get();
+                long next = Math.max(current, now) + cost;
+                if (next - now > burstNanos) return false; // Would overdraw the bucket
+                if (fullAt.compareAndSet(current, next)) return true;
+            }
+        }
+        
+        public void acquire() throws InterruptedException {
+            acquire(1);
+        }
+        
+        // Reserves the tokens now, then parks for exactly the deficit. Later
+        // callers queue up behind the reservation, so waiters stay in order.
+        public void acquire(int permits) throws InterruptedException {
+            long cost = costOf(permits);
+            long now, current, next;
+            do {
+                now = System.nanoTime();
+                current = fullAt.get();
+                next = Math.max(current, now) + cost;
+            } while (!fullAt.compareAndSet(current, next));
+            long readyAt = next - burstNanos;
+            long wait;
+            while ((wait = readyAt - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+                if (Thread.interrupted()) {
+                    // Hand the reservation back so later callers don't pay for tokens nobody used
+                    fullAt.addAndGet(-cost);
+                    throw new InterruptedException();
+                }
+            }
+        }
+        
+        // Negative while callers are parked on reservations; reported as 0
+        public double availableTokens() {
+            long now = System.nanoTime();
+            long used = Math.max(0, fullAt.get() - now);
+            return Math.max(0, burstNanos - used) / nanosPerToken;
+        }
+        
+        private long costOf(int permits) {
+            if (permits < 1) throw new IllegalArgumentException("permits must be >= 1: " + permits);
+            long cost = (long) (nanosPerToken * permits);
+            if (cost > burstNanos) {
+                throw new IllegalArgumentException(permits + " permits exceed the burst capacity");
+            }
+            return cost;
+        }
+    }
+    
+    // ============================================
+    // 7. Keyed Rate Limiters (per API key)
+    // ============================================
+    // One small limiter per key, created on first use and looked up with a
+    // plain ConcurrentHashMap.get(), so a steady-state tryAcquire(key)
+    // allocates nothing. Two algorithms:
+    //  - SLIDING_WINDOW_LOG: a ring of the last `limit` grant times; a request
+    //    passes if the oldest one has left the window. Exact, 8 bytes a permit.
+    //  - SLIDING_WINDOW_COUNTER: this window's and the last window's counts,
+    //    the last one weighted by how much of it still overlaps. Approximate,
+    //    but the whole state is one CAS'd long.
+    // Idle limiters are swept on the calling thread, amortized over creations,
+    // so the registry starts no threads.
+    static class KeyedRateLimiter<K> {
+        enum Algorithm { SLIDING_WINDOW_LOG, SLIDING_WINDOW_COUNTER }
+        
+        private static final int MAX_COUNTER_LIMIT = 0xFFFF; // Two 16-bit counts share the state word
+        private final Algorithm algorithm;
+        private final int limit;
+        private final long windowNanos;
+        private final long idleTimeoutNanos;
+        private final ConcurrentHashMap<K, Limiter> limiters = new ConcurrentHashMap<>();
+        private final Function<K, Limiter> factory; // One instance: no capturing lambda per miss
+        private final AtomicInteger createdSinceSweep = new AtomicInteger();
+        private final AtomicBoolean sweeping = new AtomicBoolean();
+        private final LongAdder expired = new LongAdder();
+        
+        abstract static class Limiter {
+            volatile long lastUsed;
+            
+            abstract boolean tryAcquire(long now);
+        }
+        
+        static final class LogLimiter extends Limiter {
+            private final long[] grants;
+            private final long windowNanos;
+            private int oldest;
+            
+            LogLimiter(int limit, long windowNanos, long now) {
+                this.grants = new long[limit];
+                this.windowNanos = windowNanos;
+                Arrays.fill(grants, now - windowNanos - 1); // Long ago: all permits free
+            }
+            
+            @Override
+            synchronized boolean tryAcquire(long now) {
+                if (now - grants[oldest] <= windowNanos) return false;
+                grants[oldest] = now;
+                oldest = oldest + 1 == grants.length ? 0 : oldest + 1;
+                return true;
+            }
+        }
+        
+        // state = [window index: 32 bits][previous count: 16][current count: 16]
+        static final class CounterLimiter extends Limiter {
+            private final AtomicLong state;
+            private final int limit;
+            private final long windowNanos;
+            private final long origin;
+            
+            CounterLimiter(int limit, long windowNanos, long now) {
+                this.limit = limit;
+                this.windowNanos = windowNanos;
+                this.origin = now;
+                this.state = new AtomicLong();
+            }
+            
+            @Override
+            boolean tryAcquire(long now) {
+                long elapsed = now - origin;
+                long window = elapsed / windowNanos;
+                double overlap = 1.0 - (double) (elapsed % windowNanos) / windowNanos;
+                while (true) {
+                    long s = state.get();
+                    // Only the low 32 bits of the window index are stored; the signed
+                    // difference stays exact for gaps under 2^31 windows
+                    int ahead = (int) window - (int) (s >>> 32);
+                    long previous = (s >>> 16) & 0xFFFF;
+                    long current = s & 0xFFFF;
+                    if (ahead > 0) {
+                        // Roll over: last window's count, or nothing if we skipped one
+                        previous = ahead == 1 ? current : 0;
+                        current = 0;
+                    }
+                    // ahead <= 0: a caller whose clock read is older than the state counts
+                    // against the current window rather than moving it backwards
+                    if (previous * overlap + current + 1 > limit) return false;
+                    long stored = ahead > 0 ? window & 0xFFFFFFFFL : s >>> 32;
+                    long next = (stored << 32) | (previous << 16) | (current + 1);
+                    if (state.compareAndSet(s, next)) return true;
+                }
+            }
+        }
+        
+        public KeyedRateLimiter(Algorithm algorithm, int limit, long window, long idleTimeout, TimeUnit unit) {
+            if (limit < 1) throw new IllegalArgumentException("limit must be >= 1: " + limit);
+            if (algorithm == Algorithm.SLIDING_WINDOW_COUNTER && limit > MAX_COUNTER_LIMIT) {
+                throw new IllegalArgumentException("SLIDING_WINDOW_COUNTER supports limits up to " + MAX_COUNTER_LIMIT);
+            }
+            this.algorithm = algorithm;
+            this.limit = limit;
+            this.windowNanos = unit.toNanos(window);
+            this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+            this.factory = key -> {
+                long now = System.nanoTime();
+                createdSinceSweep.incrementAndGet();
+                Limiter limiter = algorithm == Algorithm.SLIDING_WINDOW_LOG
+                    ? new LogLimiter(limit, windowNanos, now)
+                    : new CounterLimiter(limit, windowNanos, now);
+                limiter.lastUsed = now; // Not idle before its first use
+                return limiter;
+            };
+        }
+        
+        public boolean tryAcquire(K key) {
+            long now = System.nanoTime();
+            Limiter limiter = limiters.get(key);
+            if (limiter == null) {
+                limiter = limiters.computeIfAbsent(key, factory);
+                maybeSweep(now);
+            }
+            limiter.lastUsed = now;
+            return limiter.tryAcquire(now);
+        }
+        
+        public int size() {
+            return limiters.size();
+        }
+        
+        public long expiredCount() {
+            return expired.sum();
+        }
+        
+        // Drops limiters not used for idleTimeout. A limiter removed while a
+        // caller is still using it only forgets that caller's grant.
+        public int evictIdle() {
+            long now = System.nanoTime();
+            int removed = 0;
+            for (Map.Entry<K, Limiter> e : limiters.entrySet()) {
+                if (now - e.getValue().lastUsed > idleTimeoutNanos && limiters.remove(e.getKey(), e.getValue())) {
+                    removed++;
+                }
+            }
+            expired.add(removed);
+            return removed;
+        }
+        
+        // Sweep once creations since the last sweep reach half the map size:
+        // each creation pays O(1) amortized and the map stays bounded by live keys
+        private void maybeSweep(long now) {
+            if (createdSinceSweep.get() > Math.max(1024, limiters.size() / 2) && sweeping.compareAndSet(false, true)) {
+                try {
+                    createdSinceSweep.set(0);
+                    evictIdle();
+                } finally {
+                    sweeping.set(false);
+                }
+            }
+        }
+    }
+    
+    // ============================================
+    // 8. Adaptive Concurrency Limiter
+    // ============================================
+    // Instead of a hand-tuned Semaphore(n), the limit follows the backend:
+    // every request reports its round-trip time and the limit moves with it.
+    //  - AIMD: about +1 per round trip of successes while the limit is
+    //    actually in use, x0.9 after a drop or a round trip over the timeout.
+    //  - GRADIENT: compares the recent RTT with the lowest one seen (the
+    //    no-load baseline, re-probed every few seconds). When recent RTT grows
+    //    past it, queueing has started and the limit shrinks by the ratio;
+    //    otherwise it grows by sqrt(limit). Adjusted once per round trip.
+    //  - FIXED: never moves; the same as Semaphore(initialLimit).tryAcquire().
+    static class AdaptiveLimiter {
+        enum Algorithm { FIXED, AIMD, GRADIENT }
+        
+        private final Algorithm algorithm;
+        private final int initialLimit;
+        private final int minLimit;
+        private final int maxLimit;
+        private final long timeoutNanos;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile int limit;
+        private final LongAdder rejected = new LongAdder();
+        
+        // Sample state, guarded by this
+        private double estimatedLimit;
+        private static final long BASELINE_RESET_NANOS = TimeUnit.SECONDS.toNanos(5);
+        private double baselineRtt;
+        private double shortRtt;
+        private long baselineSince;
+        private long lastAdjustNanos;
+        
+        // Handed out per admitted request; report exactly one outcome
+        // Completes once: a second onSuccess/onDropped (say a timeout racing the
+        // response) is ignored rather than releasing the slot twice
+        public final class Permit {
+            private final long start = System.nanoTime();
+            private final AtomicBoolean released = new AtomicBoolean();
+            
+            public void onSuccess() {
+                if (released.compareAndSet(false, true)) release(System.nanoTime() - start, false);
+            }
+            
+            // Timed out or was refused downstream: treated as overload
+            public void onDropped() {
+                if (released.compareAndSet(false, true)) release(System.nanoTime() - start, true);
+            }
+        }
+        
+        public AdaptiveLimiter(Algorithm algorithm, int initialLimit, int minLimit, int maxLimit, long timeout, TimeUnit unit) {
+            this.algorithm = algorithm;
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.timeoutNanos = unit.toNanos(timeout);
+            this.limit = initialLimit;
+            this.estimatedLimit = initialLimit;
+            this.baselineSince = System.nanoTime();
+        }
+        
+        // Null when the current limit is reached: shed the request instead of queueing it
+        public Permit tryAcquire() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limit) {
+                    rejected.increment();
+                    return null;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) return new Permit();
+            }
+        }
+        
+        public int getLimit() {
+            return limit;
+        }
+        
+        public int getInFlight() {
+            return inFlight.get();
+        }
+        
+        public long getRejectedCount() {
+            return rejected.sum();
+        }
+        
+        private void release(long rttNanos, boolean dropped) {
+            int inFlightAtRelease = inFlight.getAndDecrement();
+            if (algorithm == Algorithm.FIXED) return;
+            long now = System.nanoTime();
+            synchronized (this) {
+                shortRtt = shortRtt == 0 ? rttNanos : shortRtt * 0.9 + rttNanos * 0.1;
+                if (baselineRtt == 0 || rttNanos < baselineRtt) baselineRtt = rttNanos;
+                if (now - baselineSince > BASELINE_RESET_NANOS) {
+                    // The backend may have got faster or slower for good: measure again
+                    baselineRtt = shortRtt;
+                    baselineSince = now;
+                }
+                // Cut at most once per round trip: a burst of drops is one overload, not many
+                boolean windowElapsed = now - lastAdjustNanos >= shortRtt;
+                boolean overloaded = dropped || (algorithm == Algorithm.AIMD && rttNanos > timeoutNanos);
+                boolean limitInUse = inFlightAtRelease * 2 >= estimatedLimit; // Only grow when it holds us back
+                if (algorithm == Algorithm.AIMD) {
+                    if (overloaded) {
+                        if (!windowElapsed) return;
+                        estimatedLimit *= 0.9;
+                        lastAdjustNanos = now;
+                    } else if (limitInUse) {
+                        estimatedLimit += 1.0 / estimatedLimit;
+                    }
+                } else {
+                    if (!windowElapsed) return;
+                    lastAdjustNanos = now;
+                    if (overloaded) {
+                        estimatedLimit *= 0.9;
+                    } else if (limitInUse) {
+                        // 1.5: tolerate some latency growth before backing off
+                        double gradient = Math.max(0.5, Math.min(1.0, 1.5 * baselineRtt / shortRtt));
+                        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+                        estimatedLimit = estimatedLimit * 0.8 + target * 0.2;
+                    }
+                }
+                estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+                limit = (int) estimatedLimit;
+            }
+        }
+    }
+    
+    // A backend with `capacity` workers: at or below it every call takes
+    // baseLatency; above it calls queue, so latency grows with the overload.
+    static class SimulatedBackend {
+        private final int capacity;
+        private final long baseLatencyNanos;
+        private final AtomicInteger active = new AtomicInteger();
+        
+        SimulatedBackend(int capacity, long baseLatency, TimeUnit unit) {
+            this.capacity = capacity;
+            this.baseLatencyNanos = unit.toNanos(baseLatency);
+        }
+        
+        // Returns the latency this call experienced
+        long call() {
+            int concurrent = active.incrementAndGet();
+            try {
+                long latency = baseLatencyNanos * Math.max(capacity, concurrent) / capacity;
+                LockSupport.parkNanos(latency);
+                return latency;
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+    
+    // Drives the backend from `clients` threads for durationMillis through the
+    // limiter; a rejected client backs off briefly instead of queueing
+    private static void driveBackend(AdaptiveLimiter limiter, SimulatedBackend backend, int clients,
+                                     long durationMillis, long timeoutNanos) throws InterruptedException {
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>(); // Calls take ms; boxing is noise
+        LongAdder completed = new LongAdder();
+        LongAdder dropped = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        Thread[] workers = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            workers[i] = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    AdaptiveLimiter.Permit permit = limiter.tryAcquire();
+                    if (permit == null) {
+                        LockSupport.parkNanos(500_000);
+                        continue;
+                    }
+                    long latency = backend.call();
+                    latencies.add(latency);
+                    if (latency > timeoutNanos) {
+                        dropped.increment(); // The client gave up waiting
+                        permit.onDropped();
+                    } else {
+                        completed.increment();
+                        permit.onSuccess();
+                    }
+                }
+            });
+        }
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.println(String.format("  %-18s %6.0f ok/s, timed out=%d, rejected=%d, p99=%.1fms, final limit=%d",
+            limiter.algorithm + "(" + limiter.initialLimit + ")", completed.sum() * 1000.0 / durationMillis, dropped.sum(),
+            limiter.getRejectedCount(), percentile(sorted, 99) / 1_000_000.0, limiter.getLimit()));
+    }
+    
+    // ============================================
+    // 9. Priority Lanes (reserved + borrowable capacity)
+    // ============================================
+    // ParkingLot's fair Semaphore queues every car behind every other one and
+    // cannot hold spaces back for critical traffic. Here each lane (0 = most
+    // important) owns `reserved` permits no other lane can take, and may
+    // borrow up to `maxBorrow` from a shared pool. Acquiring is a CAS on the
+    // lane's counter, unfair within the lane: a newcomer may always take its
+    // lane's free reserved permits, and may borrow unless a higher-priority
+    // lane (or a starving one) has waiters. A thread that can't get a permit
+    // queues; a released permit is then handed out by priority, the oldest
+    // waiter parked longer than starvationTimeout going first. Since every
+    // lane keeps its reserved permits, a busy high lane can slow a low lane
+    // down but never stop it.
+    static class LaneAdmission {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+        
+        private final Lane[] lanes;
+        private final int sharedCapacity;
+        private final AtomicInteger sharedInUse = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger(); // All lanes; skips dispatch when zero
+        // Bumped whenever a permit becomes free; a dispatcher that saw it change looks again
+        private final AtomicInteger permitsFreed = new AtomicInteger();
+        private final long starvationNanos;
+        
+        static final class Lane {
+            final int reserved;
+            final int maxBorrow;
+            final AtomicInteger inUse = new AtomicInteger(); // Reserved + borrowed permits held
+            final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+            final AtomicInteger waiting = new AtomicInteger();
+            final LongAdder acquired = new LongAdder();
+            final LongAdder waited = new LongAdder();
+            
+            Lane(int reserved, int maxBorrow) {
+                this.reserved = reserved;
+                this.maxBorrow = maxBorrow;
+            }
+        }
+        
+        static final class Waiter {
+            final Thread thread = Thread.currentThread();
+            final long since = System.nanoTime();
+            final AtomicInteger state = new AtomicInteger(WAITING);
+        }
+        
+        public LaneAdmission(int sharedCapacity, int[] reserved, int[] maxBorrow, long starvationTimeout, TimeUnit unit) {
+            if (reserved.length == 0) throw new IllegalArgumentException("At least one lane");
+            if (reserved.length != maxBorrow.length) throw new IllegalArgumentException("One maxBorrow per lane");
+            if (sharedCapacity < 0) throw new IllegalArgumentException("sharedCapacity must be >= 0: " + sharedCapacity);
+            this.sharedCapacity = sharedCapacity;
+            this.starvationNanos = unit.toNanos(starvationTimeout);
+            this.lanes = new Lane[reserved.length];
+            for (int i = 0; i < lanes.length; i++) {
+                if (reserved[i] < 0 || maxBorrow[i] < 0) {
+                    throw new IllegalArgumentException("Lane " + i + ": reserved and maxBorrow must be >= 0");
+                }
+                lanes[i] = new Lane(reserved[i], maxBorrow[i]);
+            }
+        }
+        
+        // Reserved permits are always fair game; shared ones only if no more deserving lane waits
+        public boolean tryAcquire(int lane) {
+            Lane l = lane(lane);
+            int freed = permitsFreed.get();
+            boolean acquired = acquireFor(l, !sharedClaimedAbove(lane));
+            if (acquired) l.acquired.increment();
+            // acquireFor may have briefly held a shared permit another thread needed
+            if (permitsFreed.get() != freed && waiting.get() > 0) dispatch();
+            return acquired;
+        }
+        
+        public void acquire(int lane) throws InterruptedException {
+            if (tryAcquire(lane)) return;
+            Lane l = lane(lane);
+            Waiter self = new Waiter();
+            waiting.incrementAndGet();
+            l.waiting.incrementAndGet();
+            l.waiters.add(self);
+            l.waited.increment();
+            dispatch(); // A permit freed before we queued is handed out here, possibly to us
+            while (self.state.get() != GRANTED) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    if (self.state.compareAndSet(WAITING, CANCELLED)) {
+                        l.waiters.remove(self);
+                        l.waiting.decrementAndGet();
+                        waiting.decrementAndGet();
+                    } else {
+                        release(lane); // Granted as we were interrupted
+                    }
+                    throw new InterruptedException();
+                }
+            }
+        }
+        
+        public void release(int lane) {
+            releasePermit(lane(lane));
+            if (waiting.get() > 0) dispatch();
+        }
+        
+        public int inUse(int lane) {
+            return lane(lane).inUse.get();
+        }
+        
+        public void printStats() {
+            for (int i = 0; i < lanes.length; i++) {
+                Lane l = lanes[i];
+                System.out.println(String.format("    lane %d: reserved=%d maxBorrow=%d acquired=%d had to wait=%d",
+                    i, l.reserved, l.maxBorrow, l.acquired.sum(), l.waited.sum()));
+            }
+        }
+        
+        private Lane lane(int lane) {
+            if (lane < 0 || lane >= lanes.length) {
+                throw new IllegalArgumentException("No lane " + lane + " (have " + lanes.length + ")");
+            }
+            return lanes[lane];
+        }
+        
+        // True if a higher-priority lane that may still borrow, or any lane's starving head, is queued
+        private boolean sharedClaimedAbove(int lane) {
+            if (waiting.get() == 0) return false;
+            long now = 0;
+            for (int i = 0; i < lanes.length; i++) {
+                Lane l = lanes[i];
+                if (l.waiting.get() == 0) continue;
+                if (i < lane && l.inUse.get() - l.reserved < l.maxBorrow) return true;
+                Waiter head = l.waiters.peek();
+                if (now == 0) now = System.nanoTime();
+                if (head != null && now - head.since > starvationNanos) return true;
+            }
+            return false;
+        }
+        
+        // Own reserved permits first, then (if allowed) one borrowed from the shared pool
+        private boolean acquireFor(Lane l, boolean mayBorrow) {
+            while (true) {
+                int n = l.inUse.get();
+                if (n < l.reserved) {
+                    if (l.inUse.compareAndSet(n, n + 1)) return true;
+                    continue;
+                }
+                if (!mayBorrow || n - l.reserved >= l.maxBorrow) return false;
+                int s = sharedInUse.get();
+                if (s >= sharedCapacity) return false;
+                if (!sharedInUse.compareAndSet(s, s + 1)) continue;
+                if (l.inUse.compareAndSet(n, n + 1)) return true;
+                // Lane moved meanwhile: give the shared permit back and retry
+                sharedInUse.decrementAndGet();
+                permitsFreed.incrementAndGet();
+            }
+        }
+        
+        private void releasePermit(Lane l) {
+            int n;
+            do {
+                n = l.inUse.get();
+                if (n == 0) throw new IllegalStateException("Lane has no permits to release");
+            } while (!l.inUse.compareAndSet(n, n - 1));
+            if (n > l.reserved) sharedInUse.decrementAndGet();
+            permitsFreed.incrementAndGet();
+        }
+        
+        // Hands out free permits until none fits a waiter. Any thread may run this;
+        // permits move by CAS and each waiter is claimed by one CAS on its state.
+        private void dispatch() {
+            while (true) {
+                int freed = permitsFreed.get();
+                while (grantOne()) { }
+                if (permitsFreed.get() == freed || waiting.get() == 0) return;
+            }
+        }
+        
+        // Starving lanes first (oldest waiter wins), otherwise highest priority
+        private boolean grantOne() {
+            long now = System.nanoTime();
+            Lane starving = null;
+            long oldest = Long.MAX_VALUE;
+            for (Lane l : lanes) {
+                Waiter head = l.waiters.peek();
+                if (head != null && now - head.since > starvationNanos && head.since < oldest) {
+                    starving = l;
+                    oldest = head.since;
+                }
+            }
+            if (starving != null && grantTo(starving)) return true;
+            for (Lane l : lanes) {
+                if (grantTo(l)) return true;
+            }
+            return false;
+        }
+        
+        // Acquires on the waiter's behalf, then claims it; the permit is never free in between
+        private boolean grantTo(Lane l) {
+            if (l.waiters.peek() == null || !acquireFor(l, true)) return false;
+            Waiter w;
+            while ((w = l.waiters.poll()) != null) {
+                if (w.state.compareAndSet(WAITING, GRANTED)) {
+                    l.waiting.decrementAndGet();
+                    waiting.decrementAndGet();
+                    l.acquired.increment();
+                    LockSupport.unpark(w.thread);
+                    return true;
+                }
+            }
+            releasePermit(l); // Everyone queued here gave up meanwhile
+            return false;
+        }
+    }
+    
+    interface LaneGate {
+        void acquire(int lane) throws InterruptedException;
+        void release(int lane);
+    }
+    
+    // laneOfThread[i] is thread i's lane; each thread acquires, holds for
+    // holdNanos, releases. Prints throughput and p99 wait per lane.
+    private static void benchmarkGate(String label, LaneGate gate, int[] laneOfThread, int laneCount,
+                                      int opsPerThread, long holdNanos) throws InterruptedException {
+        long[][] waits = new long[laneOfThread.length][opsPerThread]; // One row per thread, merged by lane after
+        Thread[] workers = new Thread[laneOfThread.length];
+        for (int i = 0; i < workers.length; i++) {
+            final int lane = laneOfThread[i];
+            final long[] myWaits = waits[i];
+            workers[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < opsPerThread; j++) {
+                        long start = System.nanoTime();
+                        gate.acquire(lane);
+                        long acquired = System.nanoTime();
+                        myWaits[j] = acquired - start;
+                        try {
+                            LockSupport.parkNanos(holdNanos); // Off-CPU, like waiting on I/O
+                        } finally {
+                            gate.release(lane);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        long elapsed = System.nanoTime() - start;
+        StringBuilder p99s = new StringBuilder();
+        for (int lane = 0; lane < laneCount; lane++) {
+            long[] laneWaits = new long[0];
+            for (int i = 0; i < workers.length; i++) {
+                if (laneOfThread[i] != lane) continue;
+                int from = laneWaits.length;
+                laneWaits = Arrays.copyOf(laneWaits, from + opsPerThread);
+                System.arraycopy(waits[i], 0, laneWaits, from, opsPerThread);
+            }
+            Arrays.sort(laneWaits);
+            p99s.append(String.format(" lane%d=%.1fms", lane, percentile(laneWaits, 99) / 1_000_000.0));
+        }
+        System.out.println(String.format("  %-22s %,8.0f ops/s, p99 wait:%s",
+            label, (double) workers.length * opsPerThread * 1e9 / elapsed, p99s));
+    }
+    
+    // Nearest-rank percentile of a sorted sample; 0 if empty
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+    
+    // Splits totalOps borrow/query/return rounds over the threads; returns elapsed nanos
+    private static long timeBorrows(int threads, int totalOps, Runnable borrowAndReturn) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < totalOps / threads; j++) borrowAndReturn.run();
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        return System.nanoTime() - start;
+    }
+    
     public static void main(String[] args) throws InterruptedException {
         System.out.println("=== Semaphore Demo ===\n");
         
@@ -219,6 +1227,172 @@ public class SemaphoreDemo {
         
         for (Thread t : carThreads) t.join();
         
+        // ============================================
+        // Demo 5: Object Pool vs Semaphore
+        // ============================================
+        System.out.println("\n--- 5. Object Pool vs Semaphore + queue (4 connections, 8 threads) ---");
+        int poolOps = 1_000_000;
+        
+        // DatabaseConnectionPool's model, plus a queue so it hands out something real
+        Semaphore permits = new Semaphore(4);
+        ConcurrentLinkedQueue<FakeConnection> idleConnections = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < 4; i++) idleConnections.add(new FakeConnection(i));
+        Runnable semaphoreBorrow = () -> {
+            permits.acquireUninterruptibly();
+            FakeConnection conn = idleConnections.poll();
+            try {
+                conn.execute("SELECT 1");
+            } finally {
+                idleConnections.offer(conn);
+                permits.release();
+            }
+        };
+        timeBorrows(8, poolOps, semaphoreBorrow); // Warm-up
+        long semaphoreTime = timeBorrows(8, poolOps, semaphoreBorrow);
+        for (FakeConnection conn : idleConnections) conn.close();
+        
+        AtomicInteger connectionIds = new AtomicInteger();
+        ObjectPool<FakeConnection> objectPool = new ObjectPool<>(() -> new FakeConnection(connectionIds.incrementAndGet()),
+            FakeConnection::close, 4, 30, 30, TimeUnit.SECONDS);
+        Runnable poolBorrow = () -> {
+            try (ObjectPool<FakeConnection>.Lease lease = objectPool.borrow(1, TimeUnit.SECONDS)) {
+                lease.get().execute("SELECT 1");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (TimeoutException e) {
+                // Counted by the pool
+            }
+        };
+        timeBorrows(8, poolOps, poolBorrow); // Warm-up
+        long poolTime = timeBorrows(8, poolOps, poolBorrow);
+        System.out.println(String.format("  Semaphore + ConcurrentLinkedQueue: %,.0f borrows/sec", poolOps * 1e9 / semaphoreTime));
+        System.out.println(String.format("  ObjectPool:                        %,.0f borrows/sec", poolOps * 1e9 / poolTime));
+        objectPool.printStats();
+        objectPool.close();
+        
+        // Idle objects are retired in the background
+        ObjectPool<FakeConnection> shortLived = new ObjectPool<>(() -> new FakeConnection(connectionIds.incrementAndGet()),
+            FakeConnection::close, 4, 10_000, 100, TimeUnit.MILLISECONDS);
+        try {
+            List<ObjectPool<FakeConnection>.Lease> leases = new ArrayList<>();
+            for (int i = 0; i < 4; i++) leases.add(shortLived.borrow(100, TimeUnit.MILLISECONDS));
+            for (ObjectPool<FakeConnection>.Lease lease : leases) lease.close();
+            System.out.println("  Short-lived pool after returning 4: size=" + shortLived.size());
+            Thread.sleep(300);
+            System.out.println("  After 300ms idle: size=" + shortLived.size() + ", connections still open=" + FakeConnection.openCount());
+        } catch (TimeoutException e) {
+            System.out.println("  Unexpected timeout: " + e.getMessage());
+        }
+        shortLived.close();
+        
+        // ============================================
+        // Demo 6: Token Bucket
+        // ============================================
+        System.out.println("\n--- 6. Token Bucket (2.5 req/s, burst 5, no refill thread) ---");
+        int threadsBefore = Thread.activeCount();
+        TokenBucket[] perClient = new TokenBucket[10_000];
+        for (int i = 0; i < perClient.length; i++) {
+            perClient[i] = new TokenBucket(2.5, 5);
+        }
+        System.out.println("  Created " + perClient.length + " limiters; live threads before: " + threadsBefore
+            + ", after: " + Thread.activeCount());
+        
+        TokenBucket bucket = perClient[0];
+        int allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (bucket.tryAcquire()) allowed++;
+        }
+        System.out.println("  Burst of 10 tryAcquire(): " + allowed + " allowed (burst capacity)");
+        System.out.println("  tryAcquire(3) on an empty bucket: " + bucket.tryAcquire(3));
+        long waitStart = System.nanoTime();
+        bucket.acquire(2); // Parks ~800ms: two tokens at 2.5/s
+        System.out.println(String.format("  acquire(2) parked %dms, tokens left: %.2f",
+            (System.nanoTime() - waitStart) / 1_000_000, bucket.availableTokens()));
+        
+        // ============================================
+        // Demo 7: Keyed Rate Limiters
+        // ============================================
+        System.out.println("\n--- 7. Keyed Rate Limiters (1M API keys, 10 req/s each) ---");
+        String[] apiKeys = new String[1_000_000];
+        for (int i = 0; i < apiKeys.length; i++) {
+            apiKeys[i] = "api-key-" + i;
+        }
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        for (KeyedRateLimiter.Algorithm algorithm : KeyedRateLimiter.Algorithm.values()) {
+            KeyedRateLimiter<String> registry = new KeyedRateLimiter<>(algorithm, 10, 1, 60, TimeUnit.SECONDS);
+            long createStart = System.nanoTime();
+            for (String key : apiKeys) registry.tryAcquire(key);
+            long createTime = System.nanoTime() - createStart;
+            
+            // Steady state: every key already has a limiter
+            int lookups = 2_000_000;
+            int[] order = new int[lookups];
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < lookups; i++) order[i] = random.nextInt(apiKeys.length);
+            long tid = Thread.currentThread().getId();
+            long allocatedBefore = threadBean.getThreadAllocatedBytes(tid);
+            long steadyStart = System.nanoTime();
+            int granted = 0;
+            for (int i = 0; i < lookups; i++) {
+                if (registry.tryAcquire(apiKeys[order[i]])) granted++;
+            }
+            long steadyTime = System.nanoTime() - steadyStart;
+            long allocated = threadBean.getThreadAllocatedBytes(tid) - allocatedBefore;
+            System.out.println(String.format("  %-22s %d limiters in %dms; steady %,.0f tryAcquire/sec, %.2f bytes/call, %d granted",
+                algorithm, registry.size(), createTime / 1_000_000, lookups * 1e9 / steadyTime,
+                (double) allocated / lookups, granted));
+        }
+        
+        // A short idle timeout: old keys disappear as new ones arrive
+        KeyedRateLimiter<String> expiring = new KeyedRateLimiter<>(
+            KeyedRateLimiter.Algorithm.SLIDING_WINDOW_COUNTER, 10, 1_000, 50, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10_000; i++) expiring.tryAcquire(apiKeys[i]);
+        Thread.sleep(100);
+        for (int i = 10_000; i < 20_000; i++) expiring.tryAcquire(apiKeys[i]);
+        System.out.println("  Idle expiry: 20000 keys seen, " + expiring.size() + " limiters live, "
+            + expiring.expiredCount() + " expired");
+        
+        // ============================================
+        // Demo 8: Adaptive Concurrency Limiter
+        // ============================================
+        System.out.println("\n--- 8. Adaptive Limiter (backend: 16 workers, 2ms; clients time out at 8ms) ---");
+        long clientTimeout = TimeUnit.MILLISECONDS.toNanos(8);
+        for (AdaptiveLimiter limiter : new AdaptiveLimiter[] {
+                new AdaptiveLimiter(AdaptiveLimiter.Algorithm.FIXED, 4, 1, 200, 8, TimeUnit.MILLISECONDS),
+                new AdaptiveLimiter(AdaptiveLimiter.Algorithm.FIXED, 100, 1, 200, 8, TimeUnit.MILLISECONDS),
+                new AdaptiveLimiter(AdaptiveLimiter.Algorithm.AIMD, 4, 1, 200, 8, TimeUnit.MILLISECONDS),
+                new AdaptiveLimiter(AdaptiveLimiter.Algorithm.GRADIENT, 4, 1, 200, 8, TimeUnit.MILLISECONDS) }) {
+            driveBackend(limiter, new SimulatedBackend(16, 2, TimeUnit.MILLISECONDS), 100, 1_000, clientTimeout);
+        }
+        
+        // ============================================
+        // Demo 9: Priority Lanes vs Semaphore
+        // ============================================
+        System.out.println("\n--- 9. Priority Lanes vs Semaphore (8 permits, 32 threads: 4 critical, 12 normal, 16 batch) ---");
+        int[] laneOfThread = new int[32];
+        for (int i = 0; i < laneOfThread.length; i++) {
+            laneOfThread[i] = i < 4 ? 0 : i < 16 ? 1 : 2;
+        }
+        Semaphore fairSemaphore = new Semaphore(8, true);
+        Semaphore unfairSemaphore = new Semaphore(8, false);
+        // 2 + 1 + 1 reserved, 4 shared
+        LaneAdmission lanes = new LaneAdmission(4, new int[] { 2, 1, 1 }, new int[] { 4, 4, 3 }, 20, TimeUnit.MILLISECONDS);
+        long holdNanos = 50_000;
+        benchmarkGate("Semaphore (fair)", new LaneGate() {
+            public void acquire(int lane) throws InterruptedException { fairSemaphore.acquire(); }
+            public void release(int lane) { fairSemaphore.release(); }
+        }, laneOfThread, 3, 2_000, holdNanos);
+        benchmarkGate("Semaphore (unfair)", new LaneGate() {
+            public void acquire(int lane) throws InterruptedException { unfairSemaphore.acquire(); }
+            public void release(int lane) { unfairSemaphore.release(); }
+        }, laneOfThread, 3, 2_000, holdNanos);
+        benchmarkGate("LaneAdmission", new LaneGate() {
+            public void acquire(int lane) throws InterruptedException { lanes.acquire(lane); }
+            public void release(int lane) { lanes.release(lane); }
+        }, laneOfThread, 3, 2_000, holdNanos);
+        lanes.printStats();
+        
         System.out.println("\n=== Key Takeaways ===");
         System.out.println("• Semaphore: Controls access to N resources");
         System.out.println("• acquire(): Get permit (blocks if none available)");
@@ -226,6 +1400,11 @@ public class SemaphoreDemo {
         System.out.println("• tryAcquire(): Non-blocking attempt");
         System.out.println("• Binary Semaphore (1 permit) = Mutex/Lock");
         System.out.println("• Fair semaphore: FIFO order");
+        System.out.println("• Object pools: a permit is not a connection; hand out, reuse and retire real objects");
+        System.out.println("• Token buckets: compute tokens from the clock, no refill thread or second-boundary bursts");
+        System.out.println("• Keyed limiters: lazy per-key state, swept when idle, no allocation per request");
+        System.out.println("• Adaptive limits: let measured latency pick the permit count instead of guessing it");
+        System.out.println("• Priority lanes: reserve capacity for critical work, lend the rest, never starve a lane");
     }
 }
 
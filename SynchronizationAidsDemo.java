@@ -1,4 +1,13 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.*;
 
 public class SynchronizationAidsDemo {
     
@@ -215,6 +224,837 @@ public class SynchronizationAidsDemo {
         }
     }
     
+    // ============================================
+    // 6. Dependency-Aware Bootstrapper
+    // ============================================
+    // ServiceStarter generalized: services declare what they need, each one
+    // keeps a countdown of unfinished dependencies (a CountDownLatch per node,
+    // in effect), and a service is submitted to the bounded pool the moment
+    // its count hits zero. Independent services start concurrently; the first
+    // failure cancels everything still pending or running.
+    static class ServiceBootstrapper {
+        interface StartAction {
+            void start() throws Exception;
+        }
+        
+        static final class Node {
+            final String name;
+            final StartAction action;
+            final List<String> dependsOn;
+            final List<Node> dependents = new ArrayList<>();
+            final AtomicInteger pendingDependencies = new AtomicInteger();
+            volatile long readyAt, startedAt, finishedAt;
+            volatile Future<?> future;
+            
+            Node(String name, StartAction action, List<String> dependsOn) {
+                this.name = name;
+                this.action = action;
+                this.dependsOn = dependsOn;
+            }
+        }
+        
+        private final Map<String, Node> nodes = new LinkedHashMap<>();
+        private final int parallelism;
+        private final AtomicInteger remaining = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile String failedService;
+        private ExecutorService pool;
+        private long bootStart, bootEnd;
+        
+        public ServiceBootstrapper(int parallelism) {
+            this.parallelism = parallelism;
+        }
+        
+        public ServiceBootstrapper add(String name, StartAction action, String... dependsOn) {
+            if (nodes.containsKey(name)) throw new IllegalArgumentException("Duplicate service: " + name);
+            nodes.put(name, new Node(name, action, Arrays.asList(dependsOn)));
+            return this;
+        }
+        
+        // Blocks until every service has started, or throws on the first failure.
+        // One-shot, like the CountDownLatch it generalizes.
+        public void start() throws InterruptedException, ExecutionException {
+            if (!started.compareAndSet(false, true)) throw new IllegalStateException("start() already called");
+            wireAndCheckForCycles();
+            remaining.set(nodes.size());
+            pool = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "Bootstrap-Worker");
+                t.setDaemon(true);
+                return t;
+            });
+            bootStart = System.nanoTime();
+            try {
+                for (Node node : nodes.values()) {
+                    if (node.pendingDependencies.get() == 0) submit(node);
+                }
+                if (nodes.isEmpty()) finished.countDown();
+                finished.await();
+            } finally {
+                bootEnd = System.nanoTime();
+                pool.shutdownNow();
+            }
+            Throwable error = failure.get();
+            if (error != null) {
+                throw new ExecutionException("Service " + failedService + " failed to start", error);
+            }
+        }
+        
+        // Walks back from the service that finished last, always through the
+        // dependency that finished last: the chain that set the startup time
+        public void printCriticalPathReport() {
+            Node last = null;
+            for (Node node : nodes.values()) {
+                if (node.finishedAt != 0 && (last == null || node.finishedAt > last.finishedAt)) last = node;
+            }
+            long serial = 0;
+            for (Node node : nodes.values()) {
+                if (node.finishedAt != 0) serial += node.finishedAt - node.startedAt;
+            }
+            System.out.println(String.format("  Startup took %dms (%dms if run serially)",
+                (bootEnd - bootStart) / 1_000_000, serial / 1_000_000));
+            Deque<Node> path = new ArrayDeque<>();
+            for (Node node = last; node != null; ) {
+                path.addFirst(node);
+                Node slowest = null;
+                for (String dependency : node.dependsOn) {
+                    Node d = nodes.get(dependency);
+                    if (slowest == null || d.finishedAt > slowest.finishedAt) slowest = d;
+                }
+                node = slowest;
+            }
+            System.out.println("  Critical path:");
+            for (Node node : path) {
+                System.out.println(String.format("    %-12s start +%4dms  ran %4dms  queued %3dms",
+                    node.name, (node.startedAt - bootStart) / 1_000_000, (node.finishedAt - node.startedAt) / 1_000_000,
+                    (node.startedAt - node.readyAt) / 1_000_000));
+            }
+        }
+        
+        private void submit(Node node) {
+            node.readyAt = System.nanoTime();
+            try {
+                Future<?> future = pool.submit(() -> run(node));
+                node.future = future;
+                // fail() may have swept the futures before this one was recorded
+                if (failure.get() != null) future.cancel(true);
+            } catch (RejectedExecutionException e) {
+                // Pool already shut down after a failure
+            }
+        }
+        
+        private void run(Node node) {
+            if (failure.get() != null) return;
+            node.startedAt = System.nanoTime();
+            try {
+                node.action.start();
+            } catch (Throwable e) {
+                fail(node, e);
+                return;
+            }
+            node.finishedAt = System.nanoTime();
+            for (Node dependent : node.dependents) {
+                if (dependent.pendingDependencies.decrementAndGet() == 0) submit(dependent);
+            }
+            if (remaining.decrementAndGet() == 0) finished.countDown();
+        }
+        
+        private void fail(Node node, Throwable error) {
+            if (!failure.compareAndSet(null, error)) return; // Only the first failure counts
+            failedService = node.name;
+            for (Node other : nodes.values()) {
+                Future<?> f = other.future;
+                if (f != null && other != node) f.cancel(true);
+            }
+            finished.countDown();
+        }
+        
+        // Kahn's algorithm: whatever never reaches zero pending dependencies is on a cycle
+        private void wireAndCheckForCycles() {
+            for (Node node : nodes.values()) {
+                for (String dependency : node.dependsOn) {
+                    Node d = nodes.get(dependency);
+                    if (d == null) throw new IllegalArgumentException(node.name + " depends on unknown service " + dependency);
+                    d.dependents.add(node);
+                }
+                node.pendingDependencies.set(node.dependsOn.size());
+            }
+            Map<Node, Integer> pending = new HashMap<>();
+            Deque<Node> ready = new ArrayDeque<>();
+            for (Node node : nodes.values()) {
+                pending.put(node, node.dependsOn.size());
+                if (node.dependsOn.isEmpty()) ready.add(node);
+            }
+            int visited = 0;
+            while (!ready.isEmpty()) {
+                Node node = ready.poll();
+                visited++;
+                for (Node dependent : node.dependents) {
+                    if (pending.merge(dependent, -1, Integer::sum) == 0) ready.add(dependent);
+                }
+            }
+            if (visited < nodes.size()) {
+                List<String> cycle = new ArrayList<>();
+                for (Map.Entry<Node, Integer> e : pending.entrySet()) {
+                    if (e.getValue() > 0) cycle.add(e.getKey().name);
+                }
+                throw new IllegalStateException("Dependency cycle among: " + cycle);
+            }
+        }
+    }
+    
+    // ============================================
+    // 7. Parallel Search Engine (ForkJoin over chunks)
+    // ============================================
+    // Records are newline-terminated lines between a ByteBuffer's position and
+    // limit: a heap buffer or a memory-mapped file. A RecursiveTask halves its
+    // byte range (moving the cut to the next line start so no record is split)
+    // until it is one chunk, jumps from match to match in it with String.indexOf,
+    // and the partial results (match count + a bounded top-k heap) are merged
+    // on the way back up. With a stop-after limit, every task checks a shared flag
+    // and the scan ends once enough matches have been found anywhere. A file
+    // is mapped in windows of up to 1GB, each ending on a record boundary.
+    static class ParallelSearchEngine {
+        static final int DEFAULT_CHUNK_BYTES = 256 * 1024; // Fits in L2 on most cores
+        static final int MAP_WINDOW_BYTES = 1 << 30;       // A MappedByteBuffer is int-indexed
+        // Leaf tasks copy a direct buffer's chunk here and scan the array, not get(int) per byte
+        private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[0]);
+        private final ForkJoinPool pool;
+        private final int chunkBytes;
+        
+        static final class Hit {
+            final long offset;     // From the start of the buffer or file
+            final int length;
+            final int score;       // Occurrences of the pattern in the record
+            String text;           // Decoded only for the hits that survive their window
+            
+            Hit(long offset, int length, int score) {
+                this.offset = offset;
+                this.length = length;
+                this.score = score;
+            }
+        }
+        
+        static final class Result {
+            final long matchingRecords;
+            final List<Hit> topHits;  // Best first
+            final boolean stoppedEarly;
+            
+            Result(long matchingRecords, List<Hit> topHits, boolean stoppedEarly) {
+                this.matchingRecords = matchingRecords;
+                this.topHits = topHits;
+                this.stoppedEarly = stoppedEarly;
+            }
+        }
+        
+        // Per-task result; the heap keeps the k best, worst on top
+        static final class Partial {
+            long matches;
+            final PriorityQueue<Hit> top;
+            final int k;
+            
+            Partial(int k) {
+                this.k = k;
+                this.top = new PriorityQueue<>(Math.max(1, k + 1),
+                    (a, b) -> a.score != b.score ? Integer.compare(a.score, b.score) : Long.compare(b.offset, a.offset));
+            }
+            
+            void offer(Hit hit) {
+                top.add(hit);
+                if (top.size() > k) top.poll();
+            }
+            
+            Partial merge(Partial other) {
+                Partial big = top.size() >= other.top.size() ? this : other;
+                Partial small = big == this ? other : this;
+                for (Hit hit : small.top) big.offer(hit);
+                big.matches += small.matches;
+                return big;
+            }
+        }
+        
+        public ParallelSearchEngine(int parallelism) {
+            this(parallelism, DEFAULT_CHUNK_BYTES);
+        }
+        
+        public ParallelSearchEngine(int parallelism, int chunkBytes) {
+            this.pool = new ForkJoinPool(parallelism);
+            this.chunkBytes = chunkBytes;
+        }
+        
+        // Full scan: exact match count and the k records with the most occurrences
+        public Result topK(ByteBuffer data, String pattern, int k) {
+            return search(data, pattern, k, Long.MAX_VALUE);
+        }
+        
+        // Stops once n matching records have been found; which n is up to the race
+        public Result firstN(ByteBuffer data, String pattern, int n) {
+            return search(data, pattern, n, n);
+        }
+        
+        // Maps the file read-only one window at a time, each cut after a newline so
+        // no record spans two windows; hits carry file offsets
+        public Result topK(Path file, String pattern, int k) throws IOException {
+            return topK(file, pattern, k, MAP_WINDOW_BYTES);
+        }
+        
+        private Result topK(Path file, String pattern, int k, int windowBytes) throws IOException {
+            byte[] needle = needle(pattern);
+            AtomicLong found = new AtomicLong();
+            AtomicBoolean stop = new AtomicBoolean();
+            Partial total = new Partial(k);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                for (long start = 0; start < size; ) {
+                    long length = Math.min(windowBytes, size - start);
+                    ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                    if (start + length < size) {
+                        int cut = (int) length - 1;
+                        while (cut >= 0 && window.get(cut) != '\n') cut--;
+                        if (cut < 0) throw new IOException("Record at offset " + start + " is longer than " + windowBytes + " bytes");
+                        window.limit(cut + 1);
+                    }
+                    total = total.merge(searchWindow(window, start, needle, k, Long.MAX_VALUE, found, stop));
+                    start += window.limit();
+                }
+            }
+            return result(total, stop);
+        }
+        
+        public void shutdown() {
+            pool.shutdown();
+        }
+        
+        private Result search(ByteBuffer data, String pattern, int k, long stopAfter) {
+            AtomicBoolean stop = new AtomicBoolean();
+            return result(searchWindow(data, 0, needle(pattern), k, stopAfter, new AtomicLong(), stop), stop);
+        }
+        
+        // Hit texts are decoded here, while the window is still mapped
+        private Partial searchWindow(ByteBuffer window, long baseOffset, byte[] needle, int k, long stopAfter,
+                                     AtomicLong found, AtomicBoolean stop) {
+            Partial partial = pool.invoke(new SearchTask(window, needle, window.position(), window.limit(), k,
+                stopAfter, found, stop));
+            Partial rebased = new Partial(k);
+            rebased.matches = partial.matches;
+            for (Hit hit : partial.top) {
+                byte[] bytes = new byte[hit.length];
+                window.get((int) hit.offset, bytes);
+                Hit moved = new Hit(baseOffset + hit.offset, hit.length, hit.score);
+                moved.text = new String(bytes, StandardCharsets.UTF_8);
+                rebased.offer(moved);
+            }
+            return rebased;
+        }
+        
+        private static Result result(Partial partial, AtomicBoolean stop) {
+            List<Hit> hits = new ArrayList<>(partial.top);
+            hits.sort(partial.top.comparator().reversed());
+            return new Result(partial.matches, hits, stop.get());
+        }
+        
+        private static byte[] needle(String pattern) {
+            byte[] needle = pattern.getBytes(StandardCharsets.UTF_8);
+            if (needle.length == 0) throw new IllegalArgumentException("Empty pattern");
+            if (pattern.indexOf('\n') >= 0) throw new IllegalArgumentException("Pattern spans records: " + pattern);
+            return needle;
+        }
+        
+        final class SearchTask extends RecursiveTask<Partial> {
+            private static final long serialVersionUID = 1L;
+            private final ByteBuffer data;
+            private final byte[] needle;
+            private final int from, to, k;
+            private final long stopAfter;
+            private final AtomicLong found;
+            private final AtomicBoolean stop;
+            
+            SearchTask(ByteBuffer data, byte[] needle, int from, int to, int k, long stopAfter,
+                       AtomicLong found, AtomicBoolean stop) {
+                this.data = data;
+                this.needle = needle;
+                this.from = from;
+                this.to = to;
+                this.k = k;
+                this.stopAfter = stopAfter;
+                this.found = found;
+                this.stop = stop;
+            }
+            
+            @Override
+            protected Partial compute() {
+                if (stop.get()) return new Partial(k);
+                if (to - from > chunkBytes) {
+                    int mid = nextRecordStart(from + (to - from) / 2);
+                    if (mid < to) {
+                        SearchTask left = new SearchTask(data, needle, from, mid, k, stopAfter, found, stop);
+                        left.fork();
+                        Partial right = new SearchTask(data, needle, mid, to, k, stopAfter, found, stop).compute();
+                        return left.join().merge(right);
+                    }
+                }
+                return scan();
+            }
+            
+            // Views the chunk as a Latin-1 String (one char per byte, so matching stays
+            // byte-exact) and lets the intrinsified String.indexOf skip ahead to the
+            // next occurrence; records without one are never looked at byte by byte.
+            private Partial scan() {
+                String text = chunkText();
+                String pattern = new String(needle, StandardCharsets.ISO_8859_1);
+                Partial partial = new Partial(k);
+                int position = 0;
+                while (!stop.get()) {
+                    int hit = text.indexOf(pattern, position);
+                    if (hit < 0) break;
+                    int start = text.lastIndexOf('\n', hit - 1) + 1;
+                    int end = text.indexOf('\n', hit);
+                    if (end < 0) end = text.length();
+                    int score = 0;
+                    for (int i = hit; i >= 0 && i + needle.length <= end; i = text.indexOf(pattern, i + needle.length)) {
+                        score++;
+                    }
+                    partial.matches++;
+                    partial.offer(new Hit(from + start, end - start, score));
+                    if (stopAfter != Long.MAX_VALUE && found.incrementAndGet() >= stopAfter) {
+                        stop.set(true);
+                    }
+                    position = end + 1;
+                }
+                return partial;
+            }
+            
+            // A heap buffer's array is used in place; a direct buffer's chunk is bulk-copied first
+            private String chunkText() {
+                int length = to - from;
+                if (data.hasArray()) {
+                    return new String(data.array(), data.arrayOffset() + from, length, StandardCharsets.ISO_8859_1);
+                }
+                byte[] bytes = SCRATCH.get();
+                if (bytes.length < length) {
+                    bytes = new byte[length];
+                    SCRATCH.set(bytes);
+                }
+                data.get(from, bytes, 0, length);
+                return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+            }
+            
+            private int nextRecordStart(int position) {
+                while (position < to && data.get(position) != '\n') position++;
+                return position + 1;
+            }
+        }
+    }
+    
+    // Synthetic log: one record per line, "timeout" appears 0-3 times per message
+    private static byte[] buildLogRecords(int targetBytes) {
+        String[] words = {"request", "served", "retry", "timeout", "cache", "miss", "upstream", "ok", "slow", "db"};
+        String[] levels = {"INFO", "INFO", "INFO", "WARN", "ERROR"};
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(targetBytes + 256);
+        for (int id = 0; sb.length() < targetBytes; id++) {
+            sb.append("id=").append(id).append(" level=").append(levels[random.nextInt(levels.length)])
+              .append(" user=u").append(random.nextInt(10_000)).append(" msg=");
+            for (int w = 0, n = 4 + random.nextInt(8); w < n; w++) {
+                sb.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            sb.append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    // Best of a few runs, in milliseconds
+    private static double timeSearch(Runnable search) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            search.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000.0;
+    }
+    
+    // ============================================
+    // 8. Back-Pressured Pipeline (Phaser per stage)
+    // ============================================
+    // MultiPhaseTask moves every worker through each phase in lockstep. Here the
+    // phases become stages joined by bounded queues: items stream through, and a
+    // full queue blocks the stage feeding it. Each stage owns a Phaser whose
+    // parties are its live workers plus one "upstream open" party; workers
+    // register and deregister as the stage is resized, and when the upstream
+    // party and the last worker have left, the phaser terminates, which closes
+    // the next stage in turn. A RuntimeException drops one item; an Error fails
+    // the whole pipeline, since the stage may have lost all its workers.
+    static class Pipeline<I> {
+        private final List<Stage> stages;
+        private final long startNanos = System.nanoTime();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        
+        private Pipeline(List<Stage> stages) {
+            this.stages = stages;
+            for (Stage stage : stages) stage.pipeline = this;
+        }
+        
+        public static <I> Builder<I, I> builder() {
+            return new Builder<>(new ArrayList<>());
+        }
+        
+        static final class Builder<I, O> {
+            private final List<Stage> stages;
+            
+            private Builder(List<Stage> stages) {
+                this.stages = stages;
+            }
+            
+            // A null result drops the item (filter)
+            @SuppressWarnings("unchecked")
+            public <R> Builder<I, R> stage(String name, int parallelism, int queueCapacity,
+                                            Function<? super O, ? extends R> fn) {
+                stages.add(new Stage(name, parallelism, queueCapacity,
+                    (Function<Object, Object>) fn));
+                return new Builder<>(stages);
+            }
+            
+            @SuppressWarnings("unchecked")
+            public Pipeline<I> build(Consumer<? super O> sink) {
+                if (stages.isEmpty()) throw new IllegalStateException("Pipeline needs at least one stage");
+                for (int i = 0; i < stages.size(); i++) {
+                    Stage stage = stages.get(i);
+                    stage.next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+                    stage.sink = (Consumer<Object>) sink;
+                }
+                Pipeline<I> pipeline = new Pipeline<>(new ArrayList<>(stages));
+                for (Stage stage : pipeline.stages) stage.resize(stage.desired.get());
+                return pipeline;
+            }
+        }
+        
+        static final class Stage {
+            final String name;
+            final BlockingQueue<Object> input;
+            final int capacity;
+            final Function<Object, Object> fn;
+            Stage next;
+            Consumer<Object> sink;
+            Pipeline<?> pipeline;
+            
+            final AtomicInteger desired = new AtomicInteger();
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger workerIds = new AtomicInteger();
+            final AtomicBoolean upstreamDone = new AtomicBoolean();
+            
+            final LongAdder processed = new LongAdder();
+            final LongAdder failed = new LongAdder();
+            final LongAdder busyNanos = new LongAdder();
+            final LongAdder blockedNanos = new LongAdder(); // Time senders spent waiting on a full input queue
+            final AtomicInteger peakDepth = new AtomicInteger();
+            
+            // Party 0 stands for "upstream may still send"; it leaves on close
+            final Phaser phaser = new Phaser(1) {
+                @Override
+                protected boolean onAdvance(int phase, int registeredParties) {
+                    if (registeredParties == 0 && next != null) next.closeUpstream();
+                    return registeredParties == 0;
+                }
+            };
+            
+            Stage(String name, int parallelism, int capacity, Function<Object, Object> fn) {
+                if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+                this.name = name;
+                this.capacity = capacity;
+                this.input = new ArrayBlockingQueue<>(capacity);
+                this.fn = fn;
+                this.desired.set(parallelism);
+            }
+            
+            void accept(Object item) throws InterruptedException {
+                if (!input.offer(item)) {
+                    long start = System.nanoTime();
+                    input.put(item);
+                    blockedNanos.add(System.nanoTime() - start);
+                }
+                int depth = input.size();
+                if (depth > peakDepth.get()) peakDepth.accumulateAndGet(depth, Math::max);
+            }
+            
+            // Idempotent: a second arriveAndDeregister would remove a live worker's party
+            void closeUpstream() {
+                if (upstreamDone.compareAndSet(false, true)) phaser.arriveAndDeregister();
+            }
+            
+            // Grows by registering new workers; shrinks by letting surplus workers deregister
+            void resize(int parallelism) {
+                if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+                desired.set(parallelism);
+                while (true) {
+                    int current = running.get();
+                    if (current >= desired.get()) return;
+                    if (!running.compareAndSet(current, current + 1)) continue;
+                    if (phaser.register() < 0) { // Stage already finished
+                        running.decrementAndGet();
+                        return;
+                    }
+                    Thread worker = new Thread(this::work, name + "-" + workerIds.incrementAndGet());
+                    worker.setDaemon(true);
+                    worker.start();
+                }
+            }
+            
+            private boolean surplus() {
+                int current = running.get();
+                return current > desired.get() && running.compareAndSet(current, current - 1);
+            }
+            
+            private void work() {
+                boolean retired = false; // surplus() already gave back this worker's slot
+                try {
+                    while (!(retired = surplus())) {
+                        if (pipeline.failure.get() != null) return;
+                        Object item = input.poll(5, TimeUnit.MILLISECONDS);
+                        if (item == null) {
+                            if (upstreamDone.get() && input.isEmpty()) return;
+                            continue;
+                        }
+                        try {
+                            long start = System.nanoTime();
+                            Object out;
+                            try {
+                                out = fn.apply(item);
+                            } finally {
+                                busyNanos.add(System.nanoTime() - start);
+                            }
+                            processed.increment();
+                            if (out == null) continue;
+                            if (next != null) next.accept(out);
+                            else sink.accept(out);
+                        } catch (RuntimeException e) {
+                            failed.increment(); // fn or the sink threw; the item is dropped
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Error e) {
+                    pipeline.fail(e);
+                    throw e;
+                } finally {
+                    if (!retired) running.decrementAndGet();
+                    phaser.arriveAndDeregister();
+                }
+            }
+        }
+        
+        // Blocks while the first stage's queue is full
+        public void submit(I item) throws InterruptedException {
+            Throwable error = failure.get();
+            if (error != null) throw new IllegalStateException("Pipeline failed", error);
+            stages.get(0).accept(item);
+        }
+        
+        // No more submissions; stages drain and shut down front to back. Safe to call twice.
+        public void close() {
+            stages.get(0).closeUpstream();
+        }
+        
+        // False on timeout; ExecutionException if an Error in some stage failed the pipeline
+        public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException {
+            Phaser last = stages.get(stages.size() - 1).phaser;
+            try {
+                last.awaitAdvanceInterruptibly(0, timeout, unit);
+            } catch (TimeoutException e) {
+                return false;
+            }
+            Throwable error = failure.get();
+            if (error != null) throw new ExecutionException("Pipeline failed", error);
+            return true;
+        }
+        
+        // Stops every stage; queued items are discarded, which also frees a blocked submitter
+        private void fail(Throwable error) {
+            if (!failure.compareAndSet(null, error)) return;
+            for (Stage stage : stages) {
+                stage.phaser.forceTermination();
+                stage.input.clear();
+            }
+        }
+        
+        public void resize(String stageName, int parallelism) {
+            for (Stage stage : stages) {
+                if (stage.name.equals(stageName)) {
+                    stage.resize(parallelism);
+                    return;
+                }
+            }
+            throw new IllegalArgumentException("No stage named " + stageName);
+        }
+        
+        public void printStats() {
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            System.out.printf("  %-8s %7s %9s %6s %8s %8s %11s %5s %9s%n",
+                "stage", "workers", "processed", "failed", "items/s", "avg busy", "queue", "peak", "put wait");
+            for (Stage stage : stages) {
+                long processed = stage.processed.sum();
+                int workers = stage.phaser.isTerminated() ? 0 : stage.running.get();
+                // Average number of workers inside fn since the pipeline started
+                double busy = stage.busyNanos.sum() / 1e9 / seconds;
+                System.out.printf("  %-8s %7d %9d %6d %8.0f %8.2f %5d/%-5d %5d %7dms%n",
+                    stage.name, workers, processed, stage.failed.sum(), processed / seconds, busy,
+                    stage.input.size(), stage.capacity, stage.peakDepth.get(), stage.blockedNanos.sum() / 1_000_000);
+            }
+        }
+    }
+    
+    // Stand-in for I/O-bound work: the worker is off the CPU, like a blocking call
+    private static void simulateIo(long micros) {
+        LockSupport.parkNanos(micros * 1_000);
+    }
+    
+    // ============================================
+    // 9. Double-Buffered Batch Handoff (Exchanger)
+    // ============================================
+    // DataExchange meets once per item. Here each side owns one of two
+    // preallocated buffers: the producer fills its buffer, and when it is
+    // full (or its oldest item is older than maxDelay) it exchanges it for
+    // the consumer's drained one. Steady state allocates nothing. A producer
+    // that can fill faster than the consumer drains waits in exchange(),
+    // which is the back-pressure. Single producer thread, single consumer thread.
+    static class DoubleBufferedBatcher<T> {
+        private final Exchanger<Batch<T>> exchanger = new Exchanger<>();
+        private final long maxDelayNanos;
+        private Batch<T> filling;   // Owned by the producer thread
+        private Batch<T> draining;  // Owned by the consumer thread
+        private volatile boolean closed;
+        
+        // Written by the producer only; read after it has finished
+        long sizeSwaps;
+        long timeSwaps;
+        
+        static final class Batch<T> {
+            private final Object[] items;
+            private int size;
+            private long firstAddNanos;
+            
+            Batch(int capacity) {
+                this.items = new Object[capacity];
+            }
+            
+            @SuppressWarnings("unchecked")
+            public T get(int index) {
+                Objects.checkIndex(index, size);
+                return (T) items[index];
+            }
+            
+            public int size() {
+                return size;
+            }
+            
+            void clear() {
+                Arrays.fill(items, 0, size, null); // Don't keep drained items reachable
+                size = 0;
+            }
+        }
+        
+        public DoubleBufferedBatcher(int batchSize, long maxDelay, TimeUnit unit) {
+            if (batchSize < 1) throw new IllegalArgumentException("batchSize must be >= 1");
+            this.filling = new Batch<>(batchSize);
+            this.draining = new Batch<>(batchSize);
+            this.maxDelayNanos = unit.toNanos(maxDelay);
+        }
+        
+        // Producer side. The age check runs every 64 items to keep nanoTime off the hot path;
+        // a producer that goes quiet should call flushIfDue() from its idle loop.
+        // A full buffer waits for the consumer indefinitely: that wait is the back-pressure.
+        // If that wait is interrupted the item is still buffered and the next call retries the swap.
+        public void add(T item) throws InterruptedException {
+            if (filling.size == filling.items.length) {
+                swap(); // Left full by an interrupted swap
+                sizeSwaps++;
+            }
+            Batch<T> batch = filling;
+            if (batch.size == 0) batch.firstAddNanos = System.nanoTime();
+            batch.items[batch.size++] = item;
+            if (batch.size == batch.items.length) {
+                swap();
+                sizeSwaps++;
+            } else if ((batch.size & 63) == 0 && System.nanoTime() - batch.firstAddNanos >= maxDelayNanos) {
+                swap();
+                timeSwaps++;
+            }
+        }
+        
+        // The timeout bounds the wait if the consumer has stopped; on timeout the items stay buffered
+        public void flushIfDue(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            if (filling.size > 0 && System.nanoTime() - filling.firstAddNanos >= maxDelayNanos) {
+                filling = exchanger.exchange(filling, timeout, unit);
+                timeSwaps++;
+            }
+        }
+        
+        // Hands over whatever is buffered; throws TimeoutException (and stays open) if the consumer doesn't take it
+        public void close(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            if (filling.size > 0) filling = exchanger.exchange(filling, timeout, unit);
+            closed = true;
+        }
+        
+        private void swap() throws InterruptedException {
+            filling = exchanger.exchange(filling);
+        }
+        
+        // Consumer side. The returned batch is valid until the next call; null on timeout
+        public Batch<T> takeBatch(long timeout, TimeUnit unit) throws InterruptedException {
+            draining.clear();
+            try {
+                draining = exchanger.exchange(draining, timeout, unit);
+                return draining;
+            } catch (TimeoutException e) {
+                return null;
+            }
+        }
+        
+        // Once true, every item added before close() has been taken
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+    
+    interface HandoffSide {
+        void run() throws InterruptedException;
+    }
+    
+    // Runs producer and consumer on their own threads; reports rate and bytes allocated per item
+    private static void timeHandoff(String label, int items, HandoffSide producer, HandoffSide consumer)
+            throws InterruptedException {
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        LongAdder allocated = new LongAdder();
+        Thread[] threads = new Thread[2];
+        HandoffSide[] sides = {producer, consumer};
+        for (int i = 0; i < 2; i++) {
+            HandoffSide side = sides[i];
+            threads[i] = new Thread(() -> {
+                long tid = Thread.currentThread().getId();
+                long before = threadBean.getThreadAllocatedBytes(tid);
+                try {
+                    side.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                allocated.add(threadBean.getThreadAllocatedBytes(tid) - before);
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %-28s %6.1fM items/s  %6.2f bytes/item%n",
+            label, items / seconds / 1e6, (double) allocated.sum() / items);
+    }
+    
+    // Stand-in for a service's startup work
+    private static ServiceBootstrapper.StartAction sleepFor(long millis) {
+        return () -> Thread.sleep(millis);
+    }
+    
     public static void main(String[] args) throws InterruptedException {
         System.out.println("=== Synchronization Aids Demo ===\n");
         
@@ -249,11 +1089,226 @@ public class SynchronizationAidsDemo {
         System.out.println("--- 5. Comparison ---");
         Comparison.demonstrate();
         
+        // ============================================
+        // Demo 6: Dependency-Aware Bootstrapper
+        // ============================================
+        System.out.println("--- 6. Dependency-Aware Bootstrapper (pool of 3) ---");
+        ServiceBootstrapper bootstrapper = new ServiceBootstrapper(3)
+            .add("config", sleepFor(100))
+            .add("database", sleepFor(400), "config")
+            .add("cache", sleepFor(300), "config")
+            .add("migrations", sleepFor(300), "database")
+            .add("metrics", sleepFor(150))
+            .add("api", sleepFor(200), "cache", "migrations")
+            .add("http", sleepFor(100), "api", "metrics");
+        try {
+            bootstrapper.start();
+            bootstrapper.printCriticalPathReport();
+        } catch (ExecutionException e) {
+            System.out.println("  Unexpected: " + e.getMessage());
+        }
+        
+        // The first failure cancels whatever is still starting
+        ServiceBootstrapper failing = new ServiceBootstrapper(3)
+            .add("config", sleepFor(100))
+            .add("database", () -> { throw new IllegalStateException("connection refused"); }, "config")
+            .add("cache", sleepFor(2_000), "config")
+            .add("api", sleepFor(200), "database", "cache");
+        long failStart = System.nanoTime();
+        try {
+            failing.start();
+        } catch (ExecutionException e) {
+            System.out.println("  " + e.getMessage() + ": " + e.getCause().getMessage()
+                + " (gave up after " + (System.nanoTime() - failStart) / 1_000_000 + "ms, cache cancelled)");
+        }
+        System.out.println();
+        
+        // ============================================
+        // Demo 7: Parallel Search Engine
+        // ============================================
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("--- 7. Parallel Search Engine (ForkJoin, " + cores + " cores) ---");
+        byte[] records = buildLogRecords(64 * 1024 * 1024);
+        ByteBuffer heap = ByteBuffer.wrap(records);
+        System.out.printf("  Corpus: %d MB of log records%n", records.length / (1024 * 1024));
+        
+        for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+            ParallelSearchEngine engine = new ParallelSearchEngine(parallelism);
+            engine.topK(heap, "timeout", 5); // Warm-up
+            double millis = timeSearch(() -> engine.topK(heap, "timeout", 5));
+            System.out.printf("  parallelism=%-2d full scan: %7.1f ms  (%6.0f MB/s)%n",
+                parallelism, millis, records.length / 1_048_576.0 / (millis / 1000));
+            engine.shutdown();
+        }
+        
+        ParallelSearchEngine engine = new ParallelSearchEngine(cores);
+        ParallelSearchEngine.Result full = engine.topK(heap, "timeout", 3);
+        System.out.printf("  %,d records match \"timeout\"; top 3:%n", full.matchingRecords);
+        for (ParallelSearchEngine.Hit hit : full.topHits) {
+            System.out.println("    [" + hit.score + "x] " + hit.text);
+        }
+        
+        double earlyMillis = timeSearch(() -> engine.firstN(heap, "level=ERROR user=u42 ", 10));
+        ParallelSearchEngine.Result early = engine.firstN(heap, "level=ERROR user=u42 ", 10);
+        System.out.printf("  firstN(10) for user u42 errors: %d found, stopped early=%b, %.1f ms%n",
+            early.matchingRecords, early.stoppedEarly, earlyMillis);
+        
+        // Same search over a memory-mapped copy of the corpus
+        try {
+            Path file = Files.createTempFile("records", ".log");
+            try {
+                Files.write(file, records);
+                double mappedMillis = timeSearch(() -> {
+                    try {
+                        engine.topK(file, "timeout", 5);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                System.out.printf("  memory-mapped file full scan: %.1f ms, %,d matches%n",
+                    mappedMillis, engine.topK(file, "timeout", 5).matchingRecords);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.out.println("  Skipping mapped search: " + e.getMessage());
+        }
+        engine.shutdown();
+        System.out.println();
+        
+        // ============================================
+        // Demo 8: Back-Pressured Pipeline
+        // ============================================
+        System.out.println("--- 8. Back-Pressured Pipeline (parse -> enrich -> write) ---");
+        LongAdder written = new LongAdder();
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder()
+            .stage("parse", 1, 256, id -> "event-" + id)
+            .stage("enrich", 1, 256, event -> {
+                simulateIo(200);
+                return event + "@region-" + (event.hashCode() & 3);
+            })
+            .stage("write", 2, 256, record -> {
+                simulateIo(100);
+                return record.length();
+            })
+            .build(bytes -> written.increment());
+        
+        int events = 20_000;
+        Thread feeder = new Thread(() -> {
+            try {
+                for (int i = 0; i < events; i++) pipeline.submit(i);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pipeline.close();
+        }, "feeder");
+        feeder.start();
+        
+        Thread.sleep(1_000);
+        System.out.println("  After 1s, enrich is the bottleneck and its queue is full:");
+        pipeline.printStats();
+        pipeline.resize("enrich", 6);
+        Thread.sleep(1_000);
+        System.out.println("  1s after resizing enrich to 6 workers (write now sets the pace):");
+        pipeline.printStats();
+        pipeline.resize("write", 4);
+        pipeline.resize("enrich", 4);
+        boolean finished;
+        try {
+            finished = pipeline.awaitCompletion(30, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            System.out.println("  Unexpected: " + e.getCause());
+            finished = false;
+        }
+        feeder.join();
+        System.out.println("  Finished=" + finished + ", written " + written.sum() + "/" + events
+            + " (write at 4, enrich shrunk to 4):");
+        pipeline.printStats();
+        System.out.println();
+        
+        // ============================================
+        // Demo 9: Double-Buffered Batch Handoff
+        // ============================================
+        System.out.println("--- 9. Double-Buffered Batch Handoff vs per-item queues ---");
+        String[] logLines = new String[1024];
+        for (int i = 0; i < logLines.length; i++) logLines[i] = "level=INFO seq=" + i + " msg=request served";
+        int lines = 5_000_000;
+        long[] sink = new long[1];
+        for (int round = 0; round < 2; round++) { // First round is warm-up
+            if (round == 1) System.out.println("  Handing off " + lines / 1_000_000 + "M log lines:");
+            
+            BlockingQueue<String> linked = new LinkedBlockingQueue<>(65_536);
+            HandoffSide linkedProducer = () -> { for (int i = 0; i < lines; i++) linked.put(logLines[i & 1023]); };
+            HandoffSide linkedConsumer = () -> { for (int i = 0; i < lines; i++) sink[0] += linked.take().length(); };
+            
+            BlockingQueue<String> array = new ArrayBlockingQueue<>(1024);
+            HandoffSide arrayProducer = () -> { for (int i = 0; i < lines; i++) array.put(logLines[i & 1023]); };
+            HandoffSide arrayConsumer = () -> { for (int i = 0; i < lines; i++) sink[0] += array.take().length(); };
+            
+            DoubleBufferedBatcher<String> batcher = new DoubleBufferedBatcher<>(1024, 5, TimeUnit.MILLISECONDS);
+            HandoffSide batchProducer = () -> {
+                for (int i = 0; i < lines; i++) batcher.add(logLines[i & 1023]);
+                try {
+                    batcher.close(1, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    throw new IllegalStateException("consumer stopped taking batches", e);
+                }
+            };
+            HandoffSide batchConsumer = () -> {
+                while (true) {
+                    DoubleBufferedBatcher.Batch<String> batch = batcher.takeBatch(10, TimeUnit.MILLISECONDS);
+                    if (batch == null) {
+                        if (batcher.isClosed()) return;
+                        continue;
+                    }
+                    for (int i = 0; i < batch.size(); i++) sink[0] += batch.get(i).length();
+                }
+            };
+            
+            if (round == 0) {
+                timeHandoff("warm-up", lines, linkedProducer, linkedConsumer);
+                timeHandoff("warm-up", lines, arrayProducer, arrayConsumer);
+                timeHandoff("warm-up", lines, batchProducer, batchConsumer);
+                continue;
+            }
+            timeHandoff("LinkedBlockingQueue put/take", lines, linkedProducer, linkedConsumer);
+            timeHandoff("ArrayBlockingQueue put/take", lines, arrayProducer, arrayConsumer);
+            timeHandoff("Exchanger double buffer", lines, batchProducer, batchConsumer);
+            System.out.println("  Batch swaps: " + batcher.sizeSwaps + " on size, " + batcher.timeSwaps + " on age");
+        }
+        
+        // A trickle of items still gets out within maxDelay once the producer goes idle
+        DoubleBufferedBatcher<String> trickle = new DoubleBufferedBatcher<>(1024, 20, TimeUnit.MILLISECONDS);
+        Thread metricsConsumer = new Thread(() -> {
+            try {
+                DoubleBufferedBatcher.Batch<String> batch;
+                while ((batch = trickle.takeBatch(1, TimeUnit.SECONDS)) != null) {
+                    System.out.println("  Flushed batch of " + batch.size() + " after idle: " + batch.get(0) + " ...");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        metricsConsumer.start();
+        for (int i = 0; i < 3; i++) trickle.add("metric=cpu value=" + (40 + i));
+        Thread.sleep(25);
+        try {
+            trickle.flushIfDue(1, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            System.out.println("  Consumer gone; 3 items still buffered");
+        }
+        metricsConsumer.join();
+        System.out.println();
+        
         System.out.println("=== Key Takeaways ===");
         System.out.println("• CountDownLatch: Wait for N operations to complete");
         System.out.println("• CyclicBarrier: N threads wait for each other (reusable)");
         System.out.println("• Phaser: Advanced multi-phase synchronization");
         System.out.println("• Exchanger: Two threads exchange data");
+        System.out.println("• Dependency graphs: start what is ready, fail fast, report the critical path");
+        System.out.println("• ForkJoin search: split on record boundaries, reduce partial top-k, stop early via a shared flag");
+        System.out.println("• Pipelines: bounded queues push back, and a Phaser per stage tracks workers as it is resized");
+        System.out.println("• Double buffering: swap whole preallocated batches through an Exchanger, not one item at a time");
     }
 }
 